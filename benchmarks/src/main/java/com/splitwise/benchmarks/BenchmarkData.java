@@ -0,0 +1,170 @@
+package com.splitwise.benchmarks;
+
+import com.splitwise.dto.request.CreateExpenseRequest;
+import com.splitwise.entity.Expense;
+import com.splitwise.entity.Group;
+import com.splitwise.entity.Split;
+import com.splitwise.entity.User;
+import com.splitwise.enums.SplitType;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Builds detached entity graphs and requests in memory, shaped like what the
+ * repositories load and what clients send. Everything uses a fixed seed so every fork
+ * sees the same data.
+ */
+public final class BenchmarkData {
+
+    private static final long SEED = 42;
+
+    private BenchmarkData() {
+    }
+
+    public static List<Expense> expenses(int expenseCount, int userCount, int groupCount, int splitsPerExpense) {
+        return expenses(expenseCount, userCount, groupCount, splitsPerExpense, 0.0);
+    }
+
+    /**
+     * Creates expenses with equal splits between randomly chosen users.
+     * The last participant takes the rounding remainder, as the service does.
+     *
+     * @param skew Zipf exponent for how often each user appears; 0 picks users uniformly,
+     *             around 1 makes a few users part of most expenses
+     */
+    public static List<Expense> expenses(int expenseCount, int userCount, int groupCount,
+                                         int splitsPerExpense, double skew) {
+        Random random = new Random(SEED);
+        ZipfPicker picker = new ZipfPicker(userCount, skew);
+        List<User> users = users(userCount);
+
+        List<Group> groups = new ArrayList<>(groupCount);
+        for (int i = 1; i <= groupCount; i++) {
+            Group group = new Group();
+            group.setId((long) i);
+            group.setName("Group " + i);
+            groups.add(group);
+        }
+
+        LocalDateTime createdAt = LocalDateTime.of(2025, 1, 1, 0, 0);
+        List<Expense> expenses = new ArrayList<>(expenseCount);
+        for (int i = 1; i <= expenseCount; i++) {
+            long amountCents = 100 + random.nextInt(100_000);
+
+            Expense expense = new Expense();
+            expense.setId((long) i);
+            expense.setDescription("Expense " + i);
+            expense.setAmount(BigDecimal.valueOf(amountCents, 2));
+            expense.setPaidBy(users.get(picker.next(random)));
+            expense.setGroup(groupCount > 0 ? groups.get(random.nextInt(groupCount)) : null);
+            expense.setSplitType(SplitType.EQUAL);
+            expense.setCreatedAt(createdAt.plusSeconds(i));
+
+            long share = amountCents / splitsPerExpense;
+            for (int s = 0; s < splitsPerExpense; s++) {
+                long cents = s == splitsPerExpense - 1 ? amountCents - share * (splitsPerExpense - 1) : share;
+
+                Split split = new Split();
+                split.setId((long) i * splitsPerExpense + s);
+                split.setExpense(expense);
+                split.setUser(users.get(picker.next(random)));
+                split.setAmount(BigDecimal.valueOf(cents, 2));
+                expense.getSplits().add(split);
+            }
+            expenses.add(expense);
+        }
+        return expenses;
+    }
+
+    /**
+     * Users with ids 1..count, keyed by id.
+     */
+    public static Map<Long, User> usersById(int count) {
+        Map<Long, User> usersById = new HashMap<>();
+        for (User user : users(count)) {
+            usersById.put(user.getId(), user);
+        }
+        return usersById;
+    }
+
+    /**
+     * A request splitting an amount between users 1..participants. EXACT shares divide
+     * the amount in cents; PERCENTAGE shares are whole hundredths of a percent.
+     */
+    public static CreateExpenseRequest request(SplitType splitType, int participants) {
+        long amountCents = 1_234_567;
+        Map<Long, BigDecimal> splits = new LinkedHashMap<>();
+
+        long assignedCents = 0;
+        long assignedBasisPoints = 0;
+        for (long userId = 1; userId <= participants; userId++) {
+            boolean last = userId == participants;
+            switch (splitType) {
+                case EQUAL -> splits.put(userId, BigDecimal.ZERO);
+                case EXACT -> {
+                    long cents = last ? amountCents - assignedCents : amountCents / participants;
+                    assignedCents += cents;
+                    splits.put(userId, BigDecimal.valueOf(cents, 2));
+                }
+                case PERCENTAGE -> {
+                    long basisPoints = last ? 10_000 - assignedBasisPoints : 10_000 / participants;
+                    assignedBasisPoints += basisPoints;
+                    splits.put(userId, BigDecimal.valueOf(basisPoints, 2));
+                }
+            }
+        }
+
+        CreateExpenseRequest request = new CreateExpenseRequest();
+        request.setDescription("Benchmark");
+        request.setAmount(BigDecimal.valueOf(amountCents, 2));
+        request.setPaidByUserId(1L);
+        request.setSplitType(splitType);
+        request.setSplits(splits);
+        return request;
+    }
+
+    private static List<User> users(int count) {
+        List<User> users = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            User user = new User();
+            user.setId((long) i);
+            user.setName("User " + i);
+            user.setEmail("user" + i + "@example.com");
+            users.add(user);
+        }
+        return users;
+    }
+
+    /**
+     * Picks indexes in [0, count) from a Zipf distribution by binary search over its CDF.
+     * Index 0 is the most likely; a skew of 0 is uniform.
+     */
+    public static final class ZipfPicker {
+        private final double[] cumulative;
+
+        public ZipfPicker(int count, double skew) {
+            cumulative = new double[count];
+            double total = 0;
+            for (int i = 0; i < count; i++) {
+                total += 1.0 / Math.pow(i + 1, skew);
+                cumulative[i] = total;
+            }
+            for (int i = 0; i < count; i++) {
+                cumulative[i] /= total;
+            }
+        }
+
+        public int next(Random random) {
+            int index = Arrays.binarySearch(cumulative, random.nextDouble());
+            int picked = index >= 0 ? index : -index - 1;
+            return Math.min(picked, cumulative.length - 1);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.splitwise.benchmarks;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC profiler and writes JMH's JSON results, so runs
+ * from two releases can be compared with {@link CompareResults}.
+ *
+ * Usage: BenchmarkRunner [output.json] [include regex]
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws RunnerException, java.io.IOException {
+        Path output = Path.of(args.length > 0 ? args[0] : "results/jmh-results.json");
+        String include = args.length > 1 ? args[1] : BenchmarkRunner.class.getPackageName() + ".*Benchmark";
+
+        if (output.toAbsolutePath().getParent() != null) {
+            Files.createDirectories(output.toAbsolutePath().getParent());
+        }
+
+        Options options = new OptionsBuilder()
+                .include(include)
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result(output.toString())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,78 @@
+package com.splitwise.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compares two JMH JSON result files and prints the change in score and in
+ * gc.alloc.rate.norm for every benchmark and parameter combination found in both.
+ *
+ * Usage: CompareResults baseline.json candidate.json
+ */
+public final class CompareResults {
+
+    private static final String ALLOC_NORM = "gc.alloc.rate.norm";
+
+    private CompareResults() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: CompareResults baseline.json candidate.json");
+            System.exit(2);
+        }
+        Map<String, JsonNode> baseline = load(Path.of(args[0]));
+        Map<String, JsonNode> candidate = load(Path.of(args[1]));
+
+        System.out.printf("%-90s %14s %14s %8s %12s %12s%n",
+                "Benchmark", "Baseline", "Candidate", "Change", "B/op before", "B/op after");
+        for (Map.Entry<String, JsonNode> entry : baseline.entrySet()) {
+            JsonNode after = candidate.get(entry.getKey());
+            if (after == null) {
+                System.out.printf("%-90s %s%n", entry.getKey(), "missing from candidate");
+                continue;
+            }
+            JsonNode before = entry.getValue();
+            double scoreBefore = before.at("/primaryMetric/score").asDouble();
+            double scoreAfter = after.at("/primaryMetric/score").asDouble();
+
+            System.out.printf("%-90s %14.3f %14.3f %+7.1f%% %12s %12s%n",
+                    entry.getKey(), scoreBefore, scoreAfter, percentChange(scoreBefore, scoreAfter),
+                    allocation(before), allocation(after));
+        }
+    }
+
+    /**
+     * Results keyed by benchmark name and parameters, in file order.
+     */
+    private static Map<String, JsonNode> load(Path file) throws IOException {
+        Map<String, JsonNode> results = new LinkedHashMap<>();
+        for (JsonNode result : new ObjectMapper().readTree(file.toFile())) {
+            StringBuilder key = new StringBuilder(result.get("benchmark").asText()
+                    .replace(CompareResults.class.getPackageName() + ".", ""));
+            JsonNode params = result.get("params");
+            if (params != null) {
+                for (Iterator<Map.Entry<String, JsonNode>> it = params.fields(); it.hasNext(); ) {
+                    Map.Entry<String, JsonNode> param = it.next();
+                    key.append(' ').append(param.getKey()).append('=').append(param.getValue().asText());
+                }
+            }
+            results.put(key.toString(), result);
+        }
+        return results;
+    }
+
+    private static String allocation(JsonNode result) {
+        JsonNode norm = result.at("/secondaryMetrics/" + ALLOC_NORM.replace("/", "~1") + "/score");
+        return norm.isMissingNode() ? "-" : String.format("%.1f", norm.asDouble());
+    }
+
+    private static double percentChange(double before, double after) {
+        return before == 0 ? 0 : (after - before) * 100 / before;
+    }
+}
@@ -0,0 +1,54 @@
+package com.splitwise.benchmarks;
+
+import com.splitwise.dto.request.CreateExpenseRequest;
+import com.splitwise.entity.Expense;
+import com.splitwise.entity.Split;
+import com.splitwise.entity.User;
+import com.splitwise.enums.SplitType;
+import com.splitwise.service.ExpenseSplitter;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Split generation and validation for one expense request, as done on every
+ * POST /api/expenses and for each item of a batch.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExpenseSplitterBenchmark {
+
+    @Param({"EQUAL", "EXACT", "PERCENTAGE"})
+    public SplitType splitType;
+
+    @Param({"2", "8", "32"})
+    public int participants;
+
+    private final ExpenseSplitter splitter = new ExpenseSplitter();
+    private CreateExpenseRequest request;
+    private Map<Long, User> users;
+
+    @Setup
+    public void setUp() {
+        request = BenchmarkData.request(splitType, participants);
+        users = BenchmarkData.usersById(participants);
+    }
+
+    @Benchmark
+    public Expense createAndValidate() {
+        Expense expense = new Expense();
+        expense.setAmount(request.getAmount());
+        expense.setPaidBy(users.get(request.getPaidByUserId()));
+        expense.setSplitType(request.getSplitType());
+
+        List<Split> splits = splitter.createSplits(expense, request, null, users);
+        expense.setSplits(splits);
+        splitter.validateSplits(expense);
+        return expense;
+    }
+}
@@ -0,0 +1,67 @@
+package com.splitwise.benchmarks;
+
+import com.splitwise.entity.Expense;
+import com.splitwise.entity.Split;
+import com.splitwise.service.NetBalanceCalculator;
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares net balance aggregation over a boxed HashMap&lt;Long, BigDecimal&gt; (the
+ * original calculateNetBalances) with {@link NetBalanceCalculator}.
+ *
+ * Every invocation processes the same number of splits, and each split counts as one
+ * operation, so throughput is in splits per millisecond and, with -prof gc,
+ * gc.alloc.rate.norm is in bytes per split.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NetBalanceBenchmark {
+
+    private static final int SPLITS = 40_000;
+
+    @Param({"1000", "100000"})
+    public int users;
+
+    @Param({"2", "4", "8"})
+    public int splitsPerExpense;
+
+    @Param({"0.0", "1.2"})
+    public double skew;
+
+    private List<Expense> expenses;
+
+    @Setup
+    public void setUp() {
+        expenses = BenchmarkData.expenses(SPLITS / splitsPerExpense, users, 50, splitsPerExpense, skew);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SPLITS)
+    public void boxedBigDecimalMap(Blackhole blackhole) {
+        Map<Long, BigDecimal> netBalances = new HashMap<>();
+        for (Expense expense : expenses) {
+            netBalances.merge(expense.getPaidBy().getId(), expense.getAmount(), BigDecimal::add);
+            for (Split split : expense.getSplits()) {
+                netBalances.merge(split.getUser().getId(), split.getAmount().negate(), BigDecimal::add);
+            }
+        }
+        blackhole.consume(netBalances);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SPLITS)
+    public void primitiveCalculator(Blackhole blackhole) {
+        NetBalanceCalculator calculator = NetBalanceCalculator.forCurrentThread().addAll(expenses);
+        blackhole.consume(calculator.overall());
+    }
+}
@@ -0,0 +1,66 @@
+package com.splitwise.benchmarks;
+
+import com.splitwise.entity.Expense;
+import com.splitwise.service.NetBalanceAggregator;
+import com.splitwise.service.NetBalanceCalculator;
+import com.splitwise.util.LongLongHashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures how a full-history sum scales with the number of workers in
+ * {@link NetBalanceAggregator}. parallelism=1 is the sequential path.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParallelAggregationBenchmark {
+
+    @Param({"1", "2", "4", "8", "16"})
+    public int parallelism;
+
+    @Param({"500000"})
+    public int expenseCount;
+
+    private List<Expense> expenses;
+    private NetBalanceAggregator aggregator;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        expenses = BenchmarkData.expenses(expenseCount, 50_000, 2_000, 4);
+        aggregator = new NetBalanceAggregator(0, parallelism);
+        verifyMatchesSequential();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        aggregator.shutdown();
+    }
+
+    @Benchmark
+    public void aggregate(Blackhole blackhole) {
+        blackhole.consume(aggregator.aggregate(expenses).overall());
+    }
+
+    private void verifyMatchesSequential() {
+        LongLongHashMap parallel = new LongLongHashMap();
+        parallel.addAll(aggregator.aggregate(expenses).overall());
+        LongLongHashMap sequential = new NetBalanceCalculator().addAll(expenses).overall();
+
+        if (parallel.size() != sequential.size()) {
+            throw new IllegalStateException("Parallel sum has " + parallel.size() + " users, sequential has "
+                    + sequential.size());
+        }
+        sequential.forEach((userId, balance) -> {
+            if (parallel.get(userId) != balance) {
+                throw new IllegalStateException("Balance of user " + userId + " differs: "
+                        + parallel.get(userId) + " != " + balance);
+            }
+        });
+    }
+}
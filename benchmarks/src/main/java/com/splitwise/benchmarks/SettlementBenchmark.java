@@ -0,0 +1,67 @@
+package com.splitwise.benchmarks;
+
+import com.splitwise.enums.SettlementMode;
+import com.splitwise.service.SettlementSolver;
+import com.splitwise.service.SettlementSolver.GroupBalance;
+import com.splitwise.util.LongLongHashMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Settles synthetic balances made of independent groups. Each group's balances sum to
+ * zero, so OPTIMAL can solve each group as its own component.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SettlementBenchmark {
+
+    @Param({"GREEDY", "OPTIMAL"})
+    public SettlementMode mode;
+
+    @Param({"4", "10", "16"})
+    public int usersPerGroup;
+
+    @Param({"1", "64"})
+    public int groups;
+
+    private SettlementSolver solver;
+    private LongLongHashMap netBalances;
+    private List<GroupBalance> groupBalances;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // Generous budget so OPTIMAL measures the exact search, not the fallback
+        solver = new SettlementSolver(18, 60_000, 0);
+        netBalances = new LongLongHashMap();
+        groupBalances = new ArrayList<>();
+
+        Random random = new Random(42);
+        long userId = 1;
+        for (long groupId = 1; groupId <= groups; groupId++) {
+            long sum = 0;
+            for (int i = 0; i < usersPerGroup; i++, userId++) {
+                long balance = i == usersPerGroup - 1 ? -sum : random.nextInt(20_001) - 10_000;
+                sum += balance;
+                netBalances.put(userId, balance);
+                groupBalances.add(new GroupBalance(userId, groupId, balance));
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        solver.shutdown();
+    }
+
+    @Benchmark
+    public SettlementSolver.Settlement settle() {
+        return solver.settle(netBalances, groupBalances, mode);
+    }
+}
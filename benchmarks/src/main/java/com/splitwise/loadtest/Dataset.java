@@ -0,0 +1,125 @@
+package com.splitwise.loadtest;
+
+import com.splitwise.benchmarks.BenchmarkData.ZipfPicker;
+import com.splitwise.dto.request.CreateExpenseRequest;
+import com.splitwise.enums.SplitType;
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Ids of the users and groups on the server under test, and random expense requests
+ * drawn from them. Users and groups are picked with a Zipf skew, so a few of each take
+ * part in most expenses.
+ */
+public class Dataset {
+
+    private static final SplitType[] SPLIT_TYPES = SplitType.values();
+    private static final int MAX_PARTICIPANTS = 8;
+
+    private final List<Long> userIds;
+    private final List<GroupInfo> groups;
+    private final int groupExpensePercent;
+    private final ZipfPicker userPicker;
+    private final ZipfPicker groupPicker;
+
+    public Dataset(List<Long> userIds, List<GroupInfo> groups, double skew, int groupExpensePercent) {
+        if (userIds.size() < 2) {
+            throw new IllegalStateException("Need at least 2 users on the server, found " + userIds.size());
+        }
+        this.userIds = userIds;
+        this.groups = groups;
+        this.groupExpensePercent = groups.isEmpty() ? 0 : groupExpensePercent;
+        this.userPicker = new ZipfPicker(userIds.size(), skew);
+        this.groupPicker = groups.isEmpty() ? null : new ZipfPicker(groups.size(), skew);
+    }
+
+    public long randomUserId(Random random) {
+        return userIds.get(userPicker.next(random));
+    }
+
+    public GroupInfo randomGroup(Random random) {
+        return groups.get(groupPicker.next(random));
+    }
+
+    public boolean hasGroups() {
+        return !groups.isEmpty();
+    }
+
+    /**
+     * A valid expense of a random split type: within a random group, paid and shared by
+     * its members, or outside any group between random users.
+     */
+    public CreateExpenseRequest randomExpense(Random random, String description) {
+        long[] candidates;
+        Long groupId = null;
+        if (random.nextInt(100) < groupExpensePercent) {
+            GroupInfo group = randomGroup(random);
+            groupId = group.id();
+            candidates = group.memberIds();
+        } else {
+            candidates = null;
+        }
+
+        int participantCount = 2 + random.nextInt(MAX_PARTICIPANTS - 1);
+        Set<Long> participants = new LinkedHashSet<>();
+        for (int attempt = 0; participants.size() < participantCount && attempt < participantCount * 4; attempt++) {
+            participants.add(candidates != null ? candidates[random.nextInt(candidates.length)] : randomUserId(random));
+        }
+        if (participants.size() < 2) {
+            participants.add(candidates != null ? candidates[0] : userIds.get(0));
+            participants.add(candidates != null ? candidates[candidates.length - 1] : userIds.get(1));
+        }
+        long paidBy = participants.iterator().next();
+
+        long amountCents = 100 + random.nextInt(50_000);
+        SplitType splitType = SPLIT_TYPES[random.nextInt(SPLIT_TYPES.length)];
+
+        CreateExpenseRequest request = new CreateExpenseRequest();
+        request.setDescription(description);
+        request.setAmount(BigDecimal.valueOf(amountCents, 2));
+        request.setPaidByUserId(paidBy);
+        request.setGroupId(groupId);
+        request.setSplitType(splitType);
+        request.setSplits(splits(splitType, participants, amountCents));
+        return request;
+    }
+
+    private static Map<Long, BigDecimal> splits(SplitType splitType, Set<Long> participants, long amountCents) {
+        Map<Long, BigDecimal> splits = new LinkedHashMap<>();
+        int n = participants.size();
+        int i = 0;
+        long assigned = 0;
+        for (Long userId : participants) {
+            boolean last = ++i == n;
+            switch (splitType) {
+                case EQUAL -> splits.put(userId, BigDecimal.ZERO);
+                case EXACT -> {
+                    long cents = last ? amountCents - assigned : amountCents / n;
+                    assigned += cents;
+                    splits.put(userId, BigDecimal.valueOf(cents, 2));
+                }
+                case PERCENTAGE -> {
+                    long basisPoints = last ? 10_000 - assigned : 10_000 / n;
+                    assigned += basisPoints;
+                    splits.put(userId, BigDecimal.valueOf(basisPoints, 2));
+                }
+            }
+        }
+        return splits;
+    }
+
+    public int getUserCount() {
+        return userIds.size();
+    }
+
+    public int getGroupCount() {
+        return groups.size();
+    }
+
+    public record GroupInfo(long id, long[] memberIds) {}
+}
@@ -0,0 +1,165 @@
+package com.splitwise.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.splitwise.benchmarks.BenchmarkData.ZipfPicker;
+import com.splitwise.dto.request.BatchCreateExpenseRequest;
+import com.splitwise.dto.request.CreateExpenseRequest;
+import com.splitwise.dto.request.CreateGroupRequest;
+import com.splitwise.dto.request.CreateUserRequest;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Seeds the server under test through its public API: users, then groups of normal and
+ * very large size with skewed membership, then expenses of every split type posted in
+ * batches. Also rebuilds a {@link Dataset} from what is already on the server.
+ */
+public class DatasetGenerator {
+
+    private static final int BATCH_SIZE = 500;
+
+    private final HttpDriver http;
+    private final LoadTestConfig config;
+
+    public DatasetGenerator(HttpDriver http, LoadTestConfig config) {
+        this.http = http;
+        this.config = config;
+    }
+
+    public Dataset generate() throws Exception {
+        Random random = new Random(config.getRandomSeed());
+        // Emails and phone numbers are unique, so keep each run's users apart
+        long run = System.currentTimeMillis() / 1000 % 10_000;
+
+        long start = System.nanoTime();
+        List<Long> userIds = createUsers(run);
+        System.out.printf("Created %d users in %d ms%n", userIds.size(), elapsedMillis(start));
+
+        start = System.nanoTime();
+        List<Dataset.GroupInfo> groups = createGroups(userIds, random);
+        System.out.printf("Created %d groups in %d ms%n", groups.size(), elapsedMillis(start));
+
+        Dataset dataset = new Dataset(userIds, groups, config.getSkew(), config.getGroupExpensePercent());
+
+        start = System.nanoTime();
+        int created = createExpenses(dataset, random);
+        System.out.printf("Created %d of %d expenses in %d ms%n", created, config.getExpenses(), elapsedMillis(start));
+        return dataset;
+    }
+
+    /**
+     * Reads the users and groups that already exist, for runs against a seeded server.
+     */
+    public Dataset discover() throws Exception {
+        List<Long> userIds = new ArrayList<>();
+        for (JsonNode user : http.getJson("/api/users")) {
+            userIds.add(user.get("id").asLong());
+        }
+
+        List<Dataset.GroupInfo> groups = new ArrayList<>();
+        for (JsonNode group : http.getJson("/api/groups")) {
+            JsonNode members = group.get("members");
+            long[] memberIds = new long[members.size()];
+            for (int i = 0; i < memberIds.length; i++) {
+                memberIds[i] = members.get(i).get("id").asLong();
+            }
+            groups.add(new Dataset.GroupInfo(group.get("id").asLong(), memberIds));
+        }
+        System.out.printf("Found %d users and %d groups%n", userIds.size(), groups.size());
+        return new Dataset(userIds, groups, config.getSkew(), config.getGroupExpensePercent());
+    }
+
+    private List<Long> createUsers(long run) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(config.getThreads());
+        try {
+            List<Callable<Long>> tasks = new ArrayList<>();
+            for (int i = 0; i < config.getUsers(); i++) {
+                CreateUserRequest request = newUser(run, i);
+                tasks.add(() -> http.postJson("/api/users", request).get("id").asLong());
+            }
+
+            List<Long> userIds = new ArrayList<>();
+            for (Future<Long> future : executor.invokeAll(tasks)) {
+                userIds.add(future.get());
+            }
+            return userIds;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    static CreateUserRequest newUser(long run, long index) {
+        CreateUserRequest request = new CreateUserRequest();
+        request.setName("Load User " + run + "-" + index);
+        request.setEmail("load-" + run + "-" + index + "@example.com");
+        request.setPhoneNumber(String.format("+1%04d%07d", run, index));
+        return request;
+    }
+
+    /**
+     * A small group of random users, for the write mix.
+     */
+    static CreateGroupRequest newGroup(Dataset dataset, Random random) {
+        Set<Long> memberIds = new LinkedHashSet<>();
+        while (memberIds.size() < 4 && memberIds.size() < dataset.getUserCount()) {
+            memberIds.add(dataset.randomUserId(random));
+        }
+        CreateGroupRequest request = new CreateGroupRequest();
+        request.setName("Load group");
+        request.setDescription("Load test");
+        request.setMemberIds(memberIds);
+        return request;
+    }
+
+    /**
+     * Normal groups first, then large ones. Members are drawn with the configured skew,
+     * so popular users belong to many groups.
+     */
+    private List<Dataset.GroupInfo> createGroups(List<Long> userIds, Random random) throws Exception {
+        ZipfPicker picker = new ZipfPicker(userIds.size(), config.getSkew());
+        List<Dataset.GroupInfo> groups = new ArrayList<>();
+        int total = config.getGroups() + config.getLargeGroups();
+        for (int i = 0; i < total; i++) {
+            boolean large = i >= config.getGroups();
+            int size = Math.min(userIds.size(), large ? config.getLargeGroupSize() : config.getGroupSize());
+
+            Set<Long> memberIds = new LinkedHashSet<>();
+            while (memberIds.size() < size) {
+                memberIds.add(userIds.get(picker.next(random)));
+                if (memberIds.size() < size && random.nextInt(4) == 0) {
+                    // Mix in uniform picks so large groups fill in reasonable time
+                    memberIds.add(userIds.get(random.nextInt(userIds.size())));
+                }
+            }
+
+            CreateGroupRequest request = new CreateGroupRequest();
+            request.setName((large ? "Large group " : "Group ") + i);
+            request.setDescription("Load test");
+            request.setMemberIds(memberIds);
+
+            long groupId = http.postJson("/api/groups", request).get("id").asLong();
+            groups.add(new Dataset.GroupInfo(groupId, memberIds.stream().mapToLong(Long::longValue).toArray()));
+        }
+        return groups;
+    }
+
+    private int createExpenses(Dataset dataset, Random random) throws Exception {
+        int created = 0;
+        for (int offset = 0; offset < config.getExpenses(); offset += BATCH_SIZE) {
+            int count = Math.min(BATCH_SIZE, config.getExpenses() - offset);
+            List<CreateExpenseRequest> expenses = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                expenses.add(dataset.randomExpense(random, "Seed " + (offset + i)));
+            }
+
+            BatchCreateExpenseRequest batch = new BatchCreateExpenseRequest();
+            batch.setExpenses(expenses);
+            created += http.postJson("/api/expenses/batch", batch).get("created").asInt();
+        }
+        return created;
+    }
+
+    private static long elapsedMillis(long start) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+}
@@ -0,0 +1,83 @@
+package com.splitwise.loadtest;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The requests the load test sends, with their share of the read or write mix.
+ */
+public enum Endpoint {
+    GET_USER("GET /api/users/{id}", false, 10),
+    LIST_USERS("GET /api/users", false, 1),
+    GET_GROUP("GET /api/groups/{id}", false, 8),
+    LIST_GROUPS("GET /api/groups", false, 1),
+    LIST_EXPENSES("GET /api/expenses", false, 8),
+    EXPENSES_BY_GROUP("GET /api/expenses/by-group", false, 12),
+    EXPENSES_BY_USER("GET /api/expenses/by-user", false, 12),
+    USER_BALANCE("GET /api/balances/user/{id}", false, 15),
+    ALL_BALANCES("GET /api/balances", false, 2),
+    CREATE_EXPENSE("POST /api/expenses", true, 18),
+    CREATE_USER("POST /api/users", true, 1),
+    CREATE_GROUP("POST /api/groups", true, 1);
+
+    private static final int PAGE_SIZE = 50;
+    private static final AtomicLong CREATED = new AtomicLong();
+    private static final long RUN = System.currentTimeMillis() / 1000 % 10_000;
+
+    private final String label;
+    private final boolean write;
+    private final int weight;
+
+    Endpoint(String label, boolean write, int weight) {
+        this.label = label;
+        this.write = write;
+        this.weight = weight;
+    }
+
+    public String getLabel() { return label; }
+    public boolean isWrite() { return write; }
+    public int getWeight() { return weight; }
+
+    /**
+     * Sends one request for this endpoint and returns the HTTP status.
+     */
+    int call(HttpDriver http, Dataset dataset, Random random) throws Exception {
+        switch (this) {
+            case GET_USER:
+                return http.get("/api/users/" + dataset.randomUserId(random));
+            case LIST_USERS:
+                return http.get("/api/users");
+            case GET_GROUP:
+                return http.get("/api/groups/" + dataset.randomGroup(random).id());
+            case LIST_GROUPS:
+                return http.get("/api/groups");
+            case LIST_EXPENSES:
+                return http.get("/api/expenses?limit=" + PAGE_SIZE);
+            case EXPENSES_BY_GROUP:
+                return http.get("/api/expenses/by-group?groupId=" + dataset.randomGroup(random).id()
+                        + "&limit=" + PAGE_SIZE);
+            case EXPENSES_BY_USER:
+                return http.get("/api/expenses/by-user?userId=" + dataset.randomUserId(random) + "&limit=" + PAGE_SIZE);
+            case USER_BALANCE:
+                return http.get("/api/balances/user/" + dataset.randomUserId(random));
+            case ALL_BALANCES:
+                return http.get("/api/balances");
+            case CREATE_EXPENSE:
+                return http.post("/api/expenses", dataset.randomExpense(random, "Load"));
+            case CREATE_USER:
+                // Offset so these never collide with seeded users of the same run
+                return http.post("/api/users", DatasetGenerator.newUser(RUN, 5_000_000 + CREATED.incrementAndGet()));
+            case CREATE_GROUP:
+                return http.post("/api/groups", DatasetGenerator.newGroup(dataset, random));
+            default:
+                throw new IllegalStateException("Unhandled endpoint " + this);
+        }
+    }
+
+    /**
+     * Whether this endpoint can run against the dataset; group endpoints need groups.
+     */
+    boolean supports(Dataset dataset) {
+        return dataset.hasGroups() || !(this == GET_GROUP || this == EXPENSES_BY_GROUP);
+    }
+}
@@ -0,0 +1,90 @@
+package com.splitwise.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+
+/**
+ * Thin JSON-over-HTTP client for the API under test. Thread-safe.
+ */
+public class HttpDriver {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(60);
+
+    private final String baseUrl;
+    private final HttpClient client;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public HttpDriver(String baseUrl) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+    }
+
+    /**
+     * Sends a GET and returns the status code, discarding the body.
+     */
+    public int get(String path) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path)).timeout(TIMEOUT).GET().build();
+        return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    /**
+     * Sends a POST with a JSON body and returns the status code, discarding the body.
+     */
+    public int post(String path, Object body) throws IOException, InterruptedException {
+        return client.send(postRequest(path, body), HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    /**
+     * Sends a GET and parses the JSON response, failing on any non-2xx status.
+     */
+    public JsonNode getJson(String path) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path)).timeout(TIMEOUT).GET().build();
+        return parse(path, client.send(request, HttpResponse.BodyHandlers.ofByteArray()));
+    }
+
+    /**
+     * Sends a POST and parses the JSON response, failing on any non-2xx status.
+     */
+    public JsonNode postJson(String path, Object body) throws IOException, InterruptedException {
+        return parse(path, client.send(postRequest(path, body), HttpResponse.BodyHandlers.ofByteArray()));
+    }
+
+    /**
+     * Sends a GET, or a POST with a JSON body when body is not null, and returns the
+     * full response.
+     */
+    public HttpResponse<byte[]> exchange(String path, Object body) throws IOException, InterruptedException {
+        HttpRequest request = body == null
+                ? HttpRequest.newBuilder(URI.create(baseUrl + path)).timeout(TIMEOUT).GET().build()
+                : postRequest(path, body);
+        return client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    public ObjectMapper getObjectMapper() {
+        return objectMapper;
+    }
+
+    private HttpRequest postRequest(String path, Object body) throws IOException {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(TIMEOUT)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body)))
+                .build();
+    }
+
+    private JsonNode parse(String path, HttpResponse<byte[]> response) throws IOException {
+        if (response.statusCode() / 100 != 2) {
+            throw new IOException(path + " returned " + response.statusCode() + ": " + new String(response.body()));
+        }
+        return objectMapper.readTree(response.body());
+    }
+}
@@ -0,0 +1,97 @@
+package com.splitwise.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import org.HdrHistogram.Histogram;
+
+/**
+ * Per-endpoint request counts, throughput and latency percentiles for one run, with
+ * JSON output and an optional comparison against an earlier run's JSON.
+ */
+public class LatencyReport {
+
+    private final Map<String, String> config;
+    private final int durationSeconds;
+    private final List<Row> rows = new ArrayList<>();
+
+    public LatencyReport(Map<String, String> config, int durationSeconds) {
+        this.config = config;
+        this.durationSeconds = durationSeconds;
+    }
+
+    /**
+     * Adds an endpoint's results. Latencies are recorded in microseconds.
+     */
+    public void add(String endpoint, Histogram latencies, long errors) {
+        long count = latencies.getTotalCount();
+        rows.add(new Row(endpoint, count, errors, (double) count / durationSeconds,
+                millis(latencies.getValueAtPercentile(50)),
+                millis(latencies.getValueAtPercentile(99)),
+                millis(latencies.getValueAtPercentile(99.9)),
+                millis(latencies.getMaxValue())));
+    }
+
+    public void print() {
+        System.out.printf("%n%-32s %10s %8s %10s %10s %10s %10s %10s%n",
+                "Endpoint", "Requests", "Errors", "RPS", "p50 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (Row row : rows) {
+            System.out.printf("%-32s %10d %8d %10.1f %10.2f %10.2f %10.2f %10.2f%n",
+                    row.endpoint(), row.requests(), row.errors(), row.rps(),
+                    row.p50Millis(), row.p99Millis(), row.p999Millis(), row.maxMillis());
+        }
+    }
+
+    public void write(Path file) throws IOException {
+        if (file.toAbsolutePath().getParent() != null) {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+        }
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("config", new TreeMap<>(config));
+        json.put("durationSeconds", durationSeconds);
+        json.put("endpoints", rows);
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(file.toFile(), json);
+        System.out.println("Results written to " + file);
+    }
+
+    /**
+     * Prints the change in throughput and p99 latency for each endpoint present in both
+     * this run and the baseline file.
+     */
+    public void compare(Path baselineFile) throws IOException {
+        Map<String, JsonNode> baseline = new HashMap<>();
+        for (JsonNode row : new ObjectMapper().readTree(baselineFile.toFile()).get("endpoints")) {
+            baseline.put(row.get("endpoint").asText(), row);
+        }
+
+        System.out.printf("%nAgainst baseline %s%n", baselineFile);
+        System.out.printf("%-32s %10s %10s %8s %10s %10s %8s%n",
+                "Endpoint", "RPS before", "RPS after", "Change", "p99 before", "p99 after", "Change");
+        for (Row row : rows) {
+            JsonNode before = baseline.get(row.endpoint());
+            if (before == null) {
+                continue;
+            }
+            double rpsBefore = before.get("rps").asDouble();
+            double p99Before = before.get("p99Millis").asDouble();
+            System.out.printf("%-32s %10.1f %10.1f %+7.1f%% %10.2f %10.2f %+7.1f%%%n",
+                    row.endpoint(), rpsBefore, row.rps(), percentChange(rpsBefore, row.rps()),
+                    p99Before, row.p99Millis(), percentChange(p99Before, row.p99Millis()));
+        }
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+
+    private static double percentChange(double before, double after) {
+        return before == 0 ? 0 : (after - before) * 100 / before;
+    }
+
+    public record Row(String endpoint, long requests, long errors, double rps,
+                      double p50Millis, double p99Millis, double p999Millis, double maxMillis) {}
+}
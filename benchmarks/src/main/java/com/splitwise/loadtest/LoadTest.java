@@ -0,0 +1,144 @@
+package com.splitwise.loadtest;
+
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLongArray;
+import org.HdrHistogram.Histogram;
+
+/**
+ * End-to-end HTTP load test against a running server.
+ *
+ * Seeds a synthetic dataset (or discovers the existing one), then runs a closed-loop
+ * mixed workload: each thread sends a request, waits for the response and sends the
+ * next. Requests during the warmup are not recorded. Reports requests per second and
+ * p50/p99/p99.9 latency per endpoint.
+ *
+ * Usage: LoadTest [--name=value ...], see {@link LoadTestConfig} for settings.
+ */
+public final class LoadTest {
+
+    /** Slowest latency the histograms track, in microseconds; slower requests are clamped. */
+    private static final long MAX_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(2);
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestConfig config = LoadTestConfig.parse(args);
+        HttpDriver http = new HttpDriver(config.getBaseUrl());
+        DatasetGenerator generator = new DatasetGenerator(http, config);
+        Dataset dataset = config.isSeedData() ? generator.generate() : generator.discover();
+
+        LatencyReport report = run(http, dataset, config);
+        report.print();
+        report.write(Path.of(config.getOutput()));
+        if (!config.getBaseline().isEmpty()) {
+            report.compare(Path.of(config.getBaseline()));
+        }
+    }
+
+    static LatencyReport run(HttpDriver http, Dataset dataset, LoadTestConfig config) throws Exception {
+        Endpoint[] endpoints = Endpoint.values();
+        Mix mix = new Mix(dataset, config.getWritePercent());
+        AtomicLongArray errors = new AtomicLongArray(endpoints.length);
+
+        long measureFrom = System.nanoTime() + TimeUnit.SECONDS.toNanos(config.getWarmupSeconds());
+        long end = measureFrom + TimeUnit.SECONDS.toNanos(config.getDurationSeconds());
+        System.out.printf("Running %d threads: %d s warmup, %d s measured, %d%% writes%n",
+                config.getThreads(), config.getWarmupSeconds(), config.getDurationSeconds(), config.getWritePercent());
+
+        ExecutorService executor = Executors.newFixedThreadPool(config.getThreads());
+        List<Future<Histogram[]>> workers = new ArrayList<>();
+        for (int t = 0; t < config.getThreads(); t++) {
+            Random random = new Random(config.getRandomSeed() + t + 1);
+            workers.add(executor.submit(() -> work(http, dataset, mix, random, measureFrom, end, errors)));
+        }
+
+        Histogram[] merged = newHistograms(endpoints.length);
+        for (Future<Histogram[]> worker : workers) {
+            Histogram[] histograms = worker.get();
+            for (int i = 0; i < endpoints.length; i++) {
+                merged[i].add(histograms[i]);
+            }
+        }
+        executor.shutdown();
+
+        LatencyReport report = new LatencyReport(config.asMap(), config.getDurationSeconds());
+        Histogram total = new Histogram(MAX_LATENCY_MICROS, 3);
+        long totalErrors = 0;
+        for (Endpoint endpoint : endpoints) {
+            if (merged[endpoint.ordinal()].getTotalCount() > 0 || errors.get(endpoint.ordinal()) > 0) {
+                report.add(endpoint.getLabel(), merged[endpoint.ordinal()], errors.get(endpoint.ordinal()));
+                total.add(merged[endpoint.ordinal()]);
+                totalErrors += errors.get(endpoint.ordinal());
+            }
+        }
+        report.add("TOTAL", total, totalErrors);
+        return report;
+    }
+
+    private static Histogram[] work(HttpDriver http, Dataset dataset, Mix mix, Random random,
+                                    long measureFrom, long end, AtomicLongArray errors) {
+        Histogram[] histograms = newHistograms(Endpoint.values().length);
+        long now;
+        while ((now = System.nanoTime()) < end) {
+            Endpoint endpoint = mix.next(random);
+            int status;
+            try {
+                status = endpoint.call(http, dataset, random);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                status = -1;
+            }
+
+            long finished = System.nanoTime();
+            if (now < measureFrom) {
+                continue;
+            }
+            if (status / 100 == 2) {
+                long micros = TimeUnit.NANOSECONDS.toMicros(finished - now);
+                histograms[endpoint.ordinal()].recordValue(Math.min(micros, MAX_LATENCY_MICROS));
+            } else {
+                errors.incrementAndGet(endpoint.ordinal());
+            }
+        }
+        return histograms;
+    }
+
+    private static Histogram[] newHistograms(int count) {
+        Histogram[] histograms = new Histogram[count];
+        for (int i = 0; i < count; i++) {
+            histograms[i] = new Histogram(MAX_LATENCY_MICROS, 3);
+        }
+        return histograms;
+    }
+
+    /**
+     * Picks endpoints by weight: a write with probability writePercent, otherwise a read.
+     */
+    private static final class Mix {
+        private final List<Endpoint> reads = new ArrayList<>();
+        private final List<Endpoint> writes = new ArrayList<>();
+        private final int writePercent;
+
+        Mix(Dataset dataset, int writePercent) {
+            this.writePercent = writePercent;
+            for (Endpoint endpoint : Endpoint.values()) {
+                if (endpoint.supports(dataset)) {
+                    List<Endpoint> pool = endpoint.isWrite() ? writes : reads;
+                    for (int i = 0; i < endpoint.getWeight(); i++) {
+                        pool.add(endpoint);
+                    }
+                }
+            }
+        }
+
+        Endpoint next(Random random) {
+            List<Endpoint> pool = random.nextInt(100) < writePercent ? writes : reads;
+            return pool.get(random.nextInt(pool.size()));
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.splitwise.loadtest;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Load test settings, parsed from --name=value arguments. Every setting has a default,
+ * so a run with the same arguments against the same build is reproducible.
+ */
+public class LoadTestConfig {
+
+    private static final Map<String, String> DEFAULTS = new LinkedHashMap<>();
+
+    static {
+        DEFAULTS.put("base-url", "http://localhost:8080");
+        DEFAULTS.put("seed-data", "true");          // false: discover users and groups already on the server
+        DEFAULTS.put("users", "2000");
+        DEFAULTS.put("groups", "200");
+        DEFAULTS.put("group-size", "6");
+        DEFAULTS.put("large-groups", "2");
+        DEFAULTS.put("large-group-size", "500");
+        DEFAULTS.put("expenses", "20000");
+        DEFAULTS.put("group-expense-percent", "80");
+        DEFAULTS.put("skew", "1.1");                // Zipf exponent for how often users and groups are picked
+        DEFAULTS.put("random-seed", "42");
+        DEFAULTS.put("threads", "16");
+        DEFAULTS.put("warmup-seconds", "10");
+        DEFAULTS.put("duration-seconds", "60");
+        DEFAULTS.put("write-percent", "10");
+        DEFAULTS.put("output", "results/loadtest.json");
+        DEFAULTS.put("baseline", "");
+    }
+
+    private final Map<String, String> values;
+
+    private LoadTestConfig(Map<String, String> values) {
+        this.values = values;
+    }
+
+    public static LoadTestConfig parse(String[] args) {
+        Map<String, String> values = new LinkedHashMap<>(DEFAULTS);
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (!arg.startsWith("--") || equals < 0) {
+                throw new IllegalArgumentException("Expected --name=value, got: " + arg);
+            }
+            String name = arg.substring(2, equals);
+            if (!DEFAULTS.containsKey(name)) {
+                throw new IllegalArgumentException("Unknown setting: " + name + ", expected one of " + DEFAULTS.keySet());
+            }
+            values.put(name, arg.substring(equals + 1));
+        }
+        return new LoadTestConfig(values);
+    }
+
+    public String getBaseUrl() { return values.get("base-url"); }
+    public boolean isSeedData() { return Boolean.parseBoolean(values.get("seed-data")); }
+    public int getUsers() { return intValue("users"); }
+    public int getGroups() { return intValue("groups"); }
+    public int getGroupSize() { return intValue("group-size"); }
+    public int getLargeGroups() { return intValue("large-groups"); }
+    public int getLargeGroupSize() { return intValue("large-group-size"); }
+    public int getExpenses() { return intValue("expenses"); }
+    public int getGroupExpensePercent() { return intValue("group-expense-percent"); }
+    public double getSkew() { return Double.parseDouble(values.get("skew")); }
+    public long getRandomSeed() { return Long.parseLong(values.get("random-seed")); }
+    public int getThreads() { return intValue("threads"); }
+    public int getWarmupSeconds() { return intValue("warmup-seconds"); }
+    public int getDurationSeconds() { return intValue("duration-seconds"); }
+    public int getWritePercent() { return intValue("write-percent"); }
+    public String getOutput() { return values.get("output"); }
+    public String getBaseline() { return values.get("baseline"); }
+
+    /**
+     * All settings, for recording alongside the results.
+     */
+    public Map<String, String> asMap() {
+        return new HashMap<>(values);
+    }
+
+    private int intValue(String name) {
+        return Integer.parseInt(values.get(name));
+    }
+}
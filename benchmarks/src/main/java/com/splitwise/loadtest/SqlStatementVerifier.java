@@ -0,0 +1,175 @@
+package com.splitwise.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.splitwise.dto.request.BatchCreateExpenseRequest;
+import com.splitwise.dto.request.CreateExpenseRequest;
+import com.splitwise.dto.request.CreateGroupRequest;
+import com.splitwise.enums.SplitType;
+import java.math.BigDecimal;
+import java.net.http.HttpResponse;
+import java.util.*;
+
+/**
+ * Checks that every controller endpoint executes exactly the expected number of SQL
+ * statements, using the X-Sql-Statement-Count header the server adds to each response.
+ * A change that introduces an N+1 query shows up as a higher count.
+ *
+ * Creates its own users, group and expenses first, so counts do not depend on what else
+ * is on the server. Also checks that a batch item with an unknown group fails on its own.
+ * Reads are sent twice and the second, warm-cache call is checked. Finally asks the server
+ * to EXPLAIN the SQL of every repository query and fails on any table scan it reports.
+ * Exits with status 1 if any count differs or any query reads a table without an index.
+ *
+ * Usage: SqlStatementVerifier [base url]
+ */
+public final class SqlStatementVerifier {
+
+    private static final String HEADER = "X-Sql-Statement-Count";
+
+    private final HttpDriver http;
+    private final List<String> failures = new ArrayList<>();
+
+    private SqlStatementVerifier(HttpDriver http) {
+        this.http = http;
+    }
+
+    public static void main(String[] args) throws Exception {
+        SqlStatementVerifier verifier = new SqlStatementVerifier(
+                new HttpDriver(args.length > 0 ? args[0] : "http://localhost:8080"));
+        verifier.verify();
+
+        if (!verifier.failures.isEmpty()) {
+            System.out.println();
+            verifier.failures.forEach(System.out::println);
+            System.exit(1);
+        }
+        System.out.println("\nAll statement counts and query plans match");
+    }
+
+    private void verify() throws Exception {
+        long run = System.currentTimeMillis() % 10_000_000;
+
+        // Counts below were measured against the current schema; update them together
+        // with any change that is meant to alter the statements an endpoint runs
+        long alice = id(write("POST /api/users", "/api/users", DatasetGenerator.newUser(run, 1), 3));
+        long bob = id(write("POST /api/users", "/api/users", DatasetGenerator.newUser(run, 2), 3));
+        long carol = id(write("POST /api/users", "/api/users", DatasetGenerator.newUser(run, 3), 3));
+
+        CreateGroupRequest group = new CreateGroupRequest();
+        group.setName("SQL check " + run);
+        group.setDescription("Statement count fixture");
+        group.setMemberIds(new LinkedHashSet<>(List.of(alice, bob, carol)));
+        long groupId = id(write("POST /api/groups", "/api/groups", group, 3));
+
+        // First expense of a user creates their ledger rows, later ones update them
+        write("POST /api/expenses (new ledger rows)", "/api/expenses",
+                expense(alice, groupId, SplitType.EQUAL, Map.of(alice, "0", bob, "0", carol, "0")), 18);
+        write("POST /api/expenses (group, EXACT)", "/api/expenses",
+                expense(bob, groupId, SplitType.EXACT, Map.of(alice, "40.50", carol, "50.00")), 10);
+        write("POST /api/expenses (no group, PERCENTAGE)", "/api/expenses",
+                expense(carol, null, SplitType.PERCENTAGE, Map.of(alice, "50", bob, "25", carol, "25")), 7);
+
+        BatchCreateExpenseRequest batch = new BatchCreateExpenseRequest();
+        batch.setExpenses(List.of(
+                expense(alice, groupId, SplitType.EQUAL, Map.of(alice, "0", bob, "0")),
+                expense(bob, null, SplitType.EXACT, Map.of(carol, "90.50"))));
+        write("POST /api/expenses/batch (2 items)", "/api/expenses/batch", batch, 9);
+
+        // An item whose group does not exist fails alone; the rest of its chunk still commits
+        BatchCreateExpenseRequest partial = new BatchCreateExpenseRequest();
+        partial.setExpenses(List.of(
+                expense(alice, groupId, SplitType.EQUAL, Map.of(alice, "0", bob, "0")),
+                expense(alice, Long.MAX_VALUE, SplitType.EQUAL, Map.of(alice, "0", bob, "0"))));
+        String partialName = "POST /api/expenses/batch (unknown group)";
+        expectCreated(partialName, write(partialName, "/api/expenses/batch", partial, 9), 1);
+
+        read("GET /api/users", "/api/users", 1);
+        read("GET /api/users/{id}", "/api/users/" + alice, 0);
+        read("GET /api/groups", "/api/groups", 1);
+        read("GET /api/groups/{id}", "/api/groups/" + groupId, 0);
+        read("GET /api/expenses", "/api/expenses?limit=5", 1);
+        read("GET /api/expenses/by-group", "/api/expenses/by-group?groupId=" + groupId, 1);
+        read("GET /api/expenses/by-user", "/api/expenses/by-user?userId=" + alice, 1);
+        read("GET /api/balances", "/api/balances", 0);
+        read("GET /api/balances/user/{id}", "/api/balances/user/" + alice, 0);
+        read("GET /api/balances?mode=OPTIMAL", "/api/balances?mode=OPTIMAL", 0);
+        read("GET /api/admin/user-directory/stats", "/api/admin/user-directory/stats", 0);
+
+        checkQueryPlans();
+    }
+
+    /**
+     * Query plans are checked after the fixture exists, so lazy loads by id have a row to use.
+     */
+    private void checkQueryPlans() throws Exception {
+        JsonNode report = http.getJson("/api/admin/query-plans");
+        JsonNode violations = report.get("violations");
+        boolean ok = violations.isEmpty();
+        System.out.printf("%-4s %-45s %d statements of %d queries on %s%n", ok ? "OK" : "FAIL",
+                "GET /api/admin/query-plans", report.get("statementsChecked").asInt(),
+                report.get("queriesChecked").asInt(), report.get("database").asText());
+        for (JsonNode violation : violations) {
+            failures.add("Query plan of " + violation.get("query").asText()
+                    + (violation.hasNonNull("table") ? " scans " + violation.get("table").asText() : "")
+                    + ": " + violation.get("message").asText()
+                    + (violation.hasNonNull("sql") ? "\n" + violation.get("sql").asText() : ""));
+        }
+    }
+
+    private JsonNode write(String name, String path, Object body, long expected) throws Exception {
+        return check(name, http.exchange(path, body), expected);
+    }
+
+    private void read(String name, String path, long expected) throws Exception {
+        http.exchange(path, null);
+        check(name, http.exchange(path, null), expected);
+    }
+
+    private JsonNode check(String name, HttpResponse<byte[]> response, long expected) throws Exception {
+        if (response.statusCode() / 100 != 2) {
+            throw new IllegalStateException(name + " returned " + response.statusCode() + ": "
+                    + new String(response.body()));
+        }
+        long actual = response.headers().firstValueAsLong(HEADER)
+                .orElseThrow(() -> new IllegalStateException(name + " has no " + HEADER + " header"));
+
+        boolean ok = actual == expected;
+        System.out.printf("%-4s %-45s expected %3d, got %3d%n", ok ? "OK" : "FAIL", name, expected, actual);
+        if (!ok) {
+            failures.add(name + ": expected " + expected + " SQL statements, got " + actual);
+        }
+        return http.getObjectMapper().readTree(response.body());
+    }
+
+    private void expectCreated(String name, JsonNode batchResult, int expected) {
+        int created = batchResult.get("created").asInt();
+        if (created != expected) {
+            System.out.printf("FAIL %-45s expected %d created, got %d%n", name, expected, created);
+            failures.add(name + ": expected " + expected + " expenses created, got " + created
+                    + ": " + batchResult.get("results"));
+        }
+    }
+
+    private static long id(JsonNode node) {
+        return node.get("id").asLong();
+    }
+
+    private static CreateExpenseRequest expense(long paidBy, Long groupId, SplitType splitType,
+                                                Map<Long, String> splits) {
+        BigDecimal amount = BigDecimal.ZERO;
+        Map<Long, BigDecimal> values = new TreeMap<>();
+        splits.forEach((userId, value) -> values.put(userId, new BigDecimal(value)));
+        if (splitType == SplitType.EXACT) {
+            amount = values.values().stream().reduce(BigDecimal.ZERO, BigDecimal::add);
+        }
+
+        CreateExpenseRequest request = new CreateExpenseRequest();
+        request.setDescription("SQL check");
+        request.setAmount(splitType == SplitType.EXACT ? amount : new BigDecimal("90.00"));
+        request.setPaidByUserId(paidBy);
+        request.setGroupId(groupId);
+        request.setSplitType(splitType);
+        request.setSplits(values);
+        return request;
+    }
+}
@@ -0,0 +1,140 @@
+package com.splitwise.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.splitwise.dto.request.CreateExpenseRequest;
+import com.splitwise.dto.request.CreateGroupRequest;
+import com.splitwise.enums.SplitType;
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Checks that one bad request in a write-behind batch fails on its own. Sends valid
+ * expenses and one with a group that does not exist at the same time, so they share a
+ * batch, and expects 201 for each valid one and 404 for the bad one. The
+ * splitwise.write-behind.batch.expenses metric must then have grown by exactly the number
+ * of valid expenses in fewer batches than expenses: only expenses committed in a shared
+ * transaction are counted there, not those retried one at a time after a rollback.
+ *
+ * The server must run with splitwise.write-behind.enabled=true; a linger of a few hundred
+ * milliseconds makes sure the requests meet in one batch.
+ * Exits with status 1 if any check fails.
+ *
+ * Usage: WriteBehindVerifier [base url] [valid expenses]
+ */
+public final class WriteBehindVerifier {
+
+    private static final String BATCH_METRIC = "/actuator/metrics/splitwise.write-behind.batch.expenses";
+
+    private final HttpDriver http;
+    private final int valid;
+    private final List<String> failures = new ArrayList<>();
+
+    private WriteBehindVerifier(HttpDriver http, int valid) {
+        this.http = http;
+        this.valid = valid;
+    }
+
+    public static void main(String[] args) throws Exception {
+        WriteBehindVerifier verifier = new WriteBehindVerifier(
+                new HttpDriver(args.length > 0 ? args[0] : "http://localhost:8080"),
+                args.length > 1 ? Integer.parseInt(args[1]) : 20);
+        verifier.verify();
+
+        if (!verifier.failures.isEmpty()) {
+            System.out.println();
+            verifier.failures.forEach(System.out::println);
+            System.exit(1);
+        }
+        System.out.println("\nThe bad request failed alone; every valid one was committed in a batch");
+    }
+
+    private void verify() throws Exception {
+        long run = System.currentTimeMillis() % 10_000_000;
+        long alice = http.postJson("/api/users", DatasetGenerator.newUser(run, 1)).get("id").asLong();
+        long bob = http.postJson("/api/users", DatasetGenerator.newUser(run, 2)).get("id").asLong();
+
+        CreateGroupRequest group = new CreateGroupRequest();
+        group.setName("Write-behind check " + run);
+        group.setDescription("Write-behind fixture");
+        group.setMemberIds(new LinkedHashSet<>(List.of(alice, bob)));
+        long groupId = http.postJson("/api/groups", group).get("id").asLong();
+
+        Map<String, Double> before = measurements();
+
+        List<CreateExpenseRequest> requests = new ArrayList<>();
+        for (int i = 0; i < valid; i++) {
+            requests.add(expense(alice, bob, groupId));
+        }
+        int bad = valid / 2;
+        requests.add(bad, expense(alice, bob, Long.MAX_VALUE));
+
+        List<Integer> statuses = postTogether(requests);
+        Map<String, Double> after = measurements();
+
+        for (int i = 0; i < statuses.size(); i++) {
+            int expected = i == bad ? 404 : 201;
+            if (statuses.get(i) != expected) {
+                failures.add("Request " + i + (i == bad ? " (unknown group)" : "") + ": expected "
+                        + expected + ", got " + statuses.get(i));
+            }
+        }
+
+        long committed = Math.round(after.get("TOTAL") - before.get("TOTAL"));
+        long batches = Math.round(after.get("COUNT") - before.get("COUNT"));
+        System.out.printf("%d valid expenses and 1 bad one: %d committed in %d write-behind batches%n",
+                valid, committed, batches);
+        if (committed != valid) {
+            failures.add("Expected " + valid + " expenses committed in write-behind batches, got " + committed
+                    + ": the rest were retried one at a time after a rollback,"
+                    + " or splitwise.write-behind.enabled is not set");
+        } else if (batches >= valid) {
+            failures.add("The " + valid + " expenses were not batched; raise splitwise.write-behind.linger-ms");
+        }
+    }
+
+    /**
+     * Sends every request at once and returns the status codes in request order.
+     */
+    private List<Integer> postTogether(List<CreateExpenseRequest> requests) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(requests.size());
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (CreateExpenseRequest request : requests) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return http.post("/api/expenses", request);
+                }));
+            }
+            start.countDown();
+
+            List<Integer> statuses = new ArrayList<>();
+            for (Future<Integer> future : futures) {
+                statuses.add(future.get());
+            }
+            return statuses;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private Map<String, Double> measurements() throws Exception {
+        Map<String, Double> values = new HashMap<>();
+        for (JsonNode measurement : http.getJson(BATCH_METRIC).get("measurements")) {
+            values.put(measurement.get("statistic").asText(), measurement.get("value").asDouble());
+        }
+        return values;
+    }
+
+    private static CreateExpenseRequest expense(long paidBy, long other, long groupId) {
+        CreateExpenseRequest request = new CreateExpenseRequest();
+        request.setDescription("Write-behind check");
+        request.setAmount(new BigDecimal("30.00"));
+        request.setPaidByUserId(paidBy);
+        request.setGroupId(groupId);
+        request.setSplitType(SplitType.EQUAL);
+        request.setSplits(new TreeMap<>(Map.of(paidBy, BigDecimal.ZERO, other, BigDecimal.ZERO)));
+        return request;
+    }
+}
@@ -0,0 +1,64 @@
+package com.splitwise.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.util.OptionalLong;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hibernate second-level cache for users, groups and group membership, kept in local
+ * Caffeine caches behind the JCache API.
+ *
+ * Every region is created here with its own size and time to live; Hibernate is told
+ * to fail on any other region rather than create an unbounded one. Entries are
+ * invalidated by Hibernate whenever the entities are written through JPA.
+ */
+@Configuration
+public class SecondLevelCacheConfig {
+
+    public static final String USERS = "users";
+    public static final String GROUPS = "groups";
+    public static final String GROUP_MEMBERS = "group-members";
+
+    @Bean(destroyMethod = "close")
+    public CacheManager hibernateCacheManager(
+            @Value("${splitwise.cache.users.max-size:100000}") long usersMaxSize,
+            @Value("${splitwise.cache.users.ttl-seconds:3600}") long usersTtlSeconds,
+            @Value("${splitwise.cache.groups.max-size:20000}") long groupsMaxSize,
+            @Value("${splitwise.cache.groups.ttl-seconds:3600}") long groupsTtlSeconds) {
+        CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager();
+        cacheManager.createCache(USERS, region(usersMaxSize, usersTtlSeconds));
+        cacheManager.createCache(GROUPS, region(groupsMaxSize, groupsTtlSeconds));
+        cacheManager.createCache(GROUP_MEMBERS, region(groupsMaxSize, groupsTtlSeconds));
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCache(CacheManager hibernateCacheManager) {
+        return properties -> {
+            properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+            properties.put(AvailableSettings.CACHE_REGION_FACTORY, "jcache");
+            properties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+            properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+        };
+    }
+
+    private static CaffeineConfiguration<Object, Object> region(long maxSize, long ttlSeconds) {
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        configuration.setMaximumSize(OptionalLong.of(maxSize));
+        configuration.setExpireAfterWrite(OptionalLong.of(TimeUnit.SECONDS.toNanos(ttlSeconds)));
+        // Hibernate caches immutable disassembled state, so copying it on every access is wasted work
+        configuration.setStoreByValue(false);
+        configuration.setStatisticsEnabled(true);
+        return configuration;
+    }
+}
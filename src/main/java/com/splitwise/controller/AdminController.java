@@ -0,0 +1,62 @@
+package com.splitwise.controller;
+
+import com.splitwise.dto.response.JournalStatusResponse;
+import com.splitwise.dto.response.LedgerRebuildResponse;
+import com.splitwise.dto.response.QueryPlanReportResponse;
+import com.splitwise.dto.response.UserDirectoryStatsResponse;
+import com.splitwise.repository.QueryPlanVerifier;
+import com.splitwise.service.BalanceLedgerService;
+import com.splitwise.service.ExpenseJournalService;
+import com.splitwise.service.UserDirectory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/admin")
+public class AdminController {
+
+    private final BalanceLedgerService balanceLedgerService;
+    private final UserDirectory userDirectory;
+    private final ExpenseJournalService expenseJournalService;
+    private final QueryPlanVerifier queryPlanVerifier;
+
+    public AdminController(BalanceLedgerService balanceLedgerService, UserDirectory userDirectory,
+                           ExpenseJournalService expenseJournalService, QueryPlanVerifier queryPlanVerifier) {
+        this.balanceLedgerService = balanceLedgerService;
+        this.userDirectory = userDirectory;
+        this.expenseJournalService = expenseJournalService;
+        this.queryPlanVerifier = queryPlanVerifier;
+    }
+
+    /**
+     * Recomputes the balance ledger from expenses and splits and reports any drift found.
+     */
+    @PostMapping("/ledger/rebuild")
+    public ResponseEntity<LedgerRebuildResponse> rebuildLedger() {
+        return ResponseEntity.ok(balanceLedgerService.rebuild());
+    }
+
+    /**
+     * Size and hit/miss counters of the in-process user directory cache.
+     */
+    @GetMapping("/user-directory/stats")
+    public ResponseEntity<UserDirectoryStatsResponse> getUserDirectoryStats() {
+        return ResponseEntity.ok(userDirectory.stats());
+    }
+
+    /**
+     * How far the expense journal has been appended, made durable and applied.
+     */
+    @GetMapping("/journal")
+    public ResponseEntity<JournalStatusResponse> getJournalStatus() {
+        return ResponseEntity.ok(expenseJournalService.status());
+    }
+
+    /**
+     * Runs every repository query and lists the statements that read a table without an index.
+     */
+    @GetMapping("/query-plans")
+    public ResponseEntity<QueryPlanReportResponse> getQueryPlans() {
+        return ResponseEntity.ok(queryPlanVerifier.report());
+    }
+}
@@ -2,27 +2,66 @@ package com.splitwise.controller;
 
 import com.splitwise.dto.response.BalanceResponse;
 import com.splitwise.service.BalanceService;
+import com.splitwise.service.BalanceService.SettledBalances;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import java.util.List;
 
 @RestController
 @RequestMapping("/api/balances")
 public class BalanceController {
 
+    static final String ALGORITHM_HEADER = "X-Settlement-Algorithm";
+    static final String DURATION_HEADER = "X-Settlement-Duration-Micros";
+    static final String SNAPSHOT_VERSION_HEADER = "X-Balance-Snapshot-Version";
+    static final String STALENESS_HEADER = "X-Balance-Staleness-Millis";
+
     private final BalanceService balanceService;
 
     public BalanceController(BalanceService balanceService) {
         this.balanceService = balanceService;
     }
 
+    /**
+     * Answers If-None-Match with 304 Not Modified when the balances have not changed,
+     * without settling them in the default mode. Other modes are settled first, since
+     * their tag depends on the settlement found.
+     */
     @GetMapping
-    public ResponseEntity<List<BalanceResponse>> getAllBalances() {
-        return ResponseEntity.ok(balanceService.getAllBalances());
+    public ResponseEntity<List<BalanceResponse>> getAllBalances(@RequestParam(required = false) String mode,
+                                                                WebRequest webRequest) {
+        String etag = balanceService.getAllBalancesETag(mode);
+        if (etag != null && webRequest.checkNotModified(etag)) {
+            return null;
+        }
+        return respond(balanceService.getAllBalances(mode), etag == null ? webRequest : null);
     }
 
     @GetMapping("/user/{userId}")
-    public ResponseEntity<BalanceResponse> getUserBalance(@PathVariable Long userId) {
-        return ResponseEntity.ok(balanceService.getUserBalance(userId));
+    public ResponseEntity<BalanceResponse> getUserBalance(@PathVariable Long userId,
+                                                          @RequestParam(required = false) String mode,
+                                                          WebRequest webRequest) {
+        String etag = balanceService.getUserBalanceETag(userId, mode);
+        if (etag != null && webRequest.checkNotModified(etag)) {
+            return null;
+        }
+        return respond(balanceService.getUserBalance(userId, mode), etag == null ? webRequest : null);
+    }
+
+    /**
+     * webRequest is given when If-None-Match is still to be checked against the settled result.
+     */
+    private <T> ResponseEntity<T> respond(SettledBalances<T> result, WebRequest webRequest) {
+        if (webRequest != null && webRequest.checkNotModified(result.getETag())) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .eTag(result.getETag())
+                .header(ALGORITHM_HEADER, result.getAlgorithm().name())
+                .header(DURATION_HEADER, String.valueOf(result.getDurationMicros()))
+                .header(SNAPSHOT_VERSION_HEADER, String.valueOf(result.getSnapshotVersion()))
+                .header(STALENESS_HEADER, String.valueOf(result.getStalenessMillis()))
+                .body(result.getBalances());
     }
 }
@@ -1,51 +1,140 @@
 package com.splitwise.controller;
 
+import com.splitwise.dto.request.BatchCreateExpenseRequest;
 import com.splitwise.dto.request.CreateExpenseRequest;
-import com.splitwise.dto.response.ExpenseResponse;
+import com.splitwise.dto.response.BatchExpenseResponse;
+import com.splitwise.service.ExpenseBatchService;
+import com.splitwise.service.ExpenseExportService;
+import com.splitwise.service.ExpenseJournalService;
+import com.splitwise.service.ChangeVersions;
 import com.splitwise.service.ExpenseService;
+import com.splitwise.service.ExpenseWriteBehindService;
 import jakarta.validation.Valid;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-import java.util.List;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
 @RequestMapping("/api/expenses")
 public class ExpenseController {
 
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
     private final ExpenseService expenseService;
+    private final ExpenseExportService expenseExportService;
+    private final ExpenseBatchService expenseBatchService;
+    private final ExpenseJournalService expenseJournalService;
+    private final ExpenseWriteBehindService expenseWriteBehindService;
+    private final ChangeVersions changeVersions;
 
-    public ExpenseController(ExpenseService expenseService) {
+    public ExpenseController(ExpenseService expenseService, ExpenseExportService expenseExportService,
+                             ExpenseBatchService expenseBatchService, ExpenseJournalService expenseJournalService,
+                             ExpenseWriteBehindService expenseWriteBehindService, ChangeVersions changeVersions) {
         this.expenseService = expenseService;
+        this.expenseExportService = expenseExportService;
+        this.expenseBatchService = expenseBatchService;
+        this.expenseJournalService = expenseJournalService;
+        this.expenseWriteBehindService = expenseWriteBehindService;
+        this.changeVersions = changeVersions;
     }
 
+    /**
+     * Expenses are returned newest first, one page at a time.
+     * Pass the "next" token from a page as ?cursor= to get the following page.
+     * Listings carry an ETag; a matching If-None-Match is answered with 304 Not Modified
+     * before anything is loaded.
+     */
     @GetMapping
-    public ResponseEntity<List<ExpenseResponse>> getAllExpenses() {
-        return ResponseEntity.ok(expenseService.getAllExpenses());
+    public ResponseEntity<byte[]> getAllExpenses(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            WebRequest webRequest) {
+        // The version is read before the page so it is never newer than the page
+        String etag = changeVersions.expensesETag();
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
+        return page(etag, expenseService.getAllExpenses(cursor, limit));
     }
 
     /**
      * @RequestParam: Extracts query parameters
-     * Example: GET /api/expenses?groupId=5
+     * Example: GET /api/expenses/by-group?groupId=5&limit=20
      * required = false: Makes parameter optional
      */
     @GetMapping("/by-group")
-    public ResponseEntity<List<ExpenseResponse>> getExpensesByGroup(
-            @RequestParam Long groupId) {
-        return ResponseEntity.ok(expenseService.getExpensesByGroup(groupId));
+    public ResponseEntity<byte[]> getExpensesByGroup(
+            @RequestParam Long groupId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            WebRequest webRequest) {
+        String etag = changeVersions.groupExpensesETag(groupId);
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
+        return page(etag, expenseService.getExpensesByGroup(groupId, cursor, limit));
     }
 
     @GetMapping("/by-user")
-    public ResponseEntity<List<ExpenseResponse>> getExpensesByUser(
-            @RequestParam Long userId) {
-        return ResponseEntity.ok(expenseService.getExpensesByUser(userId));
+    public ResponseEntity<byte[]> getExpensesByUser(
+            @RequestParam Long userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            WebRequest webRequest) {
+        String etag = changeVersions.userExpensesETag(userId);
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
+        return page(etag, expenseService.getExpensesByUser(userId, cursor, limit));
     }
 
+    /**
+     * Listing pages arrive already serialized, with each expense's JSON taken from
+     * the expense JSON cache where possible.
+     */
+    private static ResponseEntity<byte[]> page(String etag, byte[] json) {
+        return ResponseEntity.ok().eTag(etag).contentType(MediaType.APPLICATION_JSON).body(json);
+    }
+
+    /**
+     * Streams every expense as newline-delimited JSON, oldest first.
+     * The body is written on an async thread as rows are read, so it is never held in memory.
+     */
+    @GetMapping(value = "/export", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> exportExpenses() {
+        StreamingResponseBody body = expenseExportService::exportExpenses;
+        return ResponseEntity.ok().contentType(NDJSON).body(body);
+    }
+
+    /**
+     * Answers 201 with the saved expense, or, when the expense journal is enabled,
+     * 202 with a receipt once the expense is durable in the journal. With write-behind
+     * enabled the expense is saved in a shared transaction, and a full queue answers 503.
+     */
     @PostMapping
-    @ResponseStatus(HttpStatus.CREATED)
-    public ResponseEntity<ExpenseResponse> createExpense(
+    public ResponseEntity<?> createExpense(
             @Valid @RequestBody CreateExpenseRequest request) {
+        if (expenseJournalService.isEnabled()) {
+            return ResponseEntity.accepted().body(expenseJournalService.submit(request));
+        }
+        if (expenseWriteBehindService.isEnabled()) {
+            return ResponseEntity.status(HttpStatus.CREATED)
+                    .body(expenseWriteBehindService.createExpense(request));
+        }
         return ResponseEntity.status(HttpStatus.CREATED)
                 .body(expenseService.createExpense(request));
     }
+
+    /**
+     * Creates many expenses at once. Each item succeeds or fails on its own;
+     * the response lists the outcome of every item in request order.
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<BatchExpenseResponse> createExpenses(
+            @Valid @RequestBody BatchCreateExpenseRequest request) {
+        return ResponseEntity.ok(expenseBatchService.createExpenses(request.getExpenses()));
+    }
 }
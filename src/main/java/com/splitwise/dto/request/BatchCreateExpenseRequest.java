@@ -0,0 +1,17 @@
+package com.splitwise.dto.request;
+
+import jakarta.validation.constraints.NotEmpty;
+import java.util.List;
+
+/**
+ * Items are validated one by one by the batch service rather than with @Valid,
+ * so that one bad item fails on its own instead of rejecting the whole batch.
+ */
+public class BatchCreateExpenseRequest {
+
+    @NotEmpty(message = "At least one expense is required")
+    private List<CreateExpenseRequest> expenses;
+
+    public List<CreateExpenseRequest> getExpenses() { return expenses; }
+    public void setExpenses(List<CreateExpenseRequest> expenses) { this.expenses = expenses; }
+}
@@ -12,6 +12,9 @@ public class CreateExpenseRequest {
 
     @NotNull(message = "Amount is required")
     @DecimalMin(value = "0.01", message = "Amount must be greater than 0")
+    // 16 integer digits keep every amount within a long of cents
+    @Digits(integer = 16, fraction = 2,
+            message = "Amount must have at most 16 digits before and 2 after the decimal point")
     private BigDecimal amount;
 
     @NotNull(message = "Paid by user ID is required")
@@ -23,7 +26,9 @@ public class CreateExpenseRequest {
     private SplitType splitType;
 
     @NotEmpty(message = "At least one participant is required")
-    private Map<Long, BigDecimal> splits;
+    private Map<Long, @Digits(integer = 16, fraction = 2,
+            message = "Split values must have at most 16 digits before and 2 after the decimal point")
+            BigDecimal> splits;
 
     public String getDescription() { return description; }
     public void setDescription(String description) { this.description = description; }
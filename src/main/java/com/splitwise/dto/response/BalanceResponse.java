@@ -2,6 +2,7 @@ package com.splitwise.dto.response;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Objects;
 
 public class BalanceResponse {
     private Long userId;
@@ -23,6 +24,19 @@ public class BalanceResponse {
     public BigDecimal getNetBalance() { return netBalance; }
     public List<Transaction> getTransactions() { return transactions; }
 
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof BalanceResponse that)) return false;
+        return Objects.equals(userId, that.userId) && Objects.equals(userName, that.userName)
+                && Objects.equals(netBalance, that.netBalance) && Objects.equals(transactions, that.transactions);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(userId, userName, netBalance, transactions);
+    }
+
     public static class Transaction {
         private Long fromUserId;
         private String fromUserName;
@@ -46,6 +60,20 @@ public class BalanceResponse {
         public String getToUserName() { return toUserName; }
         public BigDecimal getAmount() { return amount; }
 
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Transaction that)) return false;
+            return Objects.equals(fromUserId, that.fromUserId) && Objects.equals(fromUserName, that.fromUserName)
+                    && Objects.equals(toUserId, that.toUserId) && Objects.equals(toUserName, that.toUserName)
+                    && Objects.equals(amount, that.amount);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(fromUserId, fromUserName, toUserId, toUserName, amount);
+        }
+
         @Override
         public String toString() {
             return String.format("%s owes %s $%.2f", fromUserName, toUserName, amount);
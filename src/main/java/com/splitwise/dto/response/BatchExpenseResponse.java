@@ -0,0 +1,68 @@
+package com.splitwise.dto.response;
+
+import java.util.List;
+
+public class BatchExpenseResponse {
+    private int requested;
+    private int created;
+    private int failed;
+    private long elapsedMillis;
+    private double expensesPerSecond;
+    private List<ItemResult> results;
+
+    public BatchExpenseResponse() {}
+
+    public BatchExpenseResponse(int requested, int created, int failed, long elapsedMillis,
+                                double expensesPerSecond, List<ItemResult> results) {
+        this.requested = requested;
+        this.created = created;
+        this.failed = failed;
+        this.elapsedMillis = elapsedMillis;
+        this.expensesPerSecond = expensesPerSecond;
+        this.results = results;
+    }
+
+    public int getRequested() { return requested; }
+    public int getCreated() { return created; }
+    public int getFailed() { return failed; }
+    public long getElapsedMillis() { return elapsedMillis; }
+    public double getExpensesPerSecond() { return expensesPerSecond; }
+    public List<ItemResult> getResults() { return results; }
+
+    /**
+     * Outcome of one item, in request order. index is the item's position in the request.
+     */
+    public static class ItemResult {
+        private int index;
+        private Status status;
+        private Long expenseId;
+        private String error;
+
+        public ItemResult() {}
+
+        public ItemResult(int index, Status status, Long expenseId, String error) {
+            this.index = index;
+            this.status = status;
+            this.expenseId = expenseId;
+            this.error = error;
+        }
+
+        public static ItemResult created(int index, Long expenseId) {
+            return new ItemResult(index, Status.CREATED, expenseId, null);
+        }
+
+        public static ItemResult failed(int index, String error) {
+            return new ItemResult(index, Status.FAILED, null, error);
+        }
+
+        public int getIndex() { return index; }
+        public Status getStatus() { return status; }
+        public Long getExpenseId() { return expenseId; }
+        public String getError() { return error; }
+    }
+
+    public enum Status {
+        CREATED,
+        FAILED
+    }
+}
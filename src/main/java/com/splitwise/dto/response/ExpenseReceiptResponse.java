@@ -0,0 +1,22 @@
+package com.splitwise.dto.response;
+
+import java.time.LocalDateTime;
+
+/**
+ * Acknowledges an expense accepted into the write-ahead journal. The expense is durable
+ * but appears in listings and balances only once the journal applier has saved it.
+ */
+public class ExpenseReceiptResponse {
+    private long journalSequence;
+    private LocalDateTime acceptedAt;
+
+    public ExpenseReceiptResponse() {}
+
+    public ExpenseReceiptResponse(long journalSequence, LocalDateTime acceptedAt) {
+        this.journalSequence = journalSequence;
+        this.acceptedAt = acceptedAt;
+    }
+
+    public long getJournalSequence() { return journalSequence; }
+    public LocalDateTime getAcceptedAt() { return acceptedAt; }
+}
@@ -0,0 +1,34 @@
+package com.splitwise.dto.response;
+
+/**
+ * Progress of the write-ahead journal. An expense with a receipt is in the database once
+ * appliedSequence has reached its journal sequence, unless it is among the dead letters.
+ */
+public class JournalStatusResponse {
+    private boolean enabled;
+    private long appendedSequence;
+    private long durableSequence;
+    private long appliedSequence;
+    private int segments;
+    private long deadLetters;
+
+    public JournalStatusResponse() {}
+
+    public JournalStatusResponse(boolean enabled, long appendedSequence, long durableSequence,
+                                 long appliedSequence, int segments, long deadLetters) {
+        this.enabled = enabled;
+        this.appendedSequence = appendedSequence;
+        this.durableSequence = durableSequence;
+        this.appliedSequence = appliedSequence;
+        this.segments = segments;
+        this.deadLetters = deadLetters;
+    }
+
+    public boolean isEnabled() { return enabled; }
+    public long getAppendedSequence() { return appendedSequence; }
+    public long getDurableSequence() { return durableSequence; }
+    public long getAppliedSequence() { return appliedSequence; }
+    public int getSegments() { return segments; }
+    /** Records since startup that could not be applied and were moved to the dead-letter file. */
+    public long getDeadLetters() { return deadLetters; }
+}
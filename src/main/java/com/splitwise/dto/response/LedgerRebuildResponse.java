@@ -0,0 +1,56 @@
+package com.splitwise.dto.response;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+public class LedgerRebuildResponse {
+    private int expensesScanned;
+    private Long checkpointExpenseId;
+    private int entriesChecked;
+    private List<Drift> drifts;
+    private LocalDateTime rebuiltAt;
+
+    public LedgerRebuildResponse() {}
+
+    public LedgerRebuildResponse(int expensesScanned, Long checkpointExpenseId, int entriesChecked,
+                                 List<Drift> drifts, LocalDateTime rebuiltAt) {
+        this.expensesScanned = expensesScanned;
+        this.checkpointExpenseId = checkpointExpenseId;
+        this.entriesChecked = entriesChecked;
+        this.drifts = drifts;
+        this.rebuiltAt = rebuiltAt;
+    }
+
+    public int getExpensesScanned() { return expensesScanned; }
+    /** Highest expense id in the checkpoint the rebuild started from; null if it replayed every expense. */
+    public Long getCheckpointExpenseId() { return checkpointExpenseId; }
+    public int getEntriesChecked() { return entriesChecked; }
+    public List<Drift> getDrifts() { return drifts; }
+    public LocalDateTime getRebuiltAt() { return rebuiltAt; }
+
+    /**
+     * A ledger row whose stored balance did not match the balance recomputed from expenses.
+     * groupId is null for a user's overall balance.
+     */
+    public static class Drift {
+        private Long userId;
+        private Long groupId;
+        private BigDecimal ledgerBalance;
+        private BigDecimal actualBalance;
+
+        public Drift() {}
+
+        public Drift(Long userId, Long groupId, BigDecimal ledgerBalance, BigDecimal actualBalance) {
+            this.userId = userId;
+            this.groupId = groupId;
+            this.ledgerBalance = ledgerBalance;
+            this.actualBalance = actualBalance;
+        }
+
+        public Long getUserId() { return userId; }
+        public Long getGroupId() { return groupId; }
+        public BigDecimal getLedgerBalance() { return ledgerBalance; }
+        public BigDecimal getActualBalance() { return actualBalance; }
+    }
+}
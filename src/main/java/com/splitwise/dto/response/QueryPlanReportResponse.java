@@ -0,0 +1,57 @@
+package com.splitwise.dto.response;
+
+import java.util.List;
+
+public class QueryPlanReportResponse {
+    private String database;
+    private int queriesChecked;
+    private int statementsChecked;
+    private List<Violation> violations;
+
+    public QueryPlanReportResponse() {}
+
+    public QueryPlanReportResponse(String database, int queriesChecked, int statementsChecked,
+                                   List<Violation> violations) {
+        this.database = database;
+        this.queriesChecked = queriesChecked;
+        this.statementsChecked = statementsChecked;
+        this.violations = violations;
+    }
+
+    public String getDatabase() { return database; }
+    public int getQueriesChecked() { return queriesChecked; }
+    /** SQL statements the queries actually executed, each explained. */
+    public int getStatementsChecked() { return statementsChecked; }
+    public List<Violation> getViolations() { return violations; }
+
+    /**
+     * A query that read a table without an index, or could not be checked.
+     * table is null when the query failed or executed no SQL; message then says why.
+     */
+    public static class Violation {
+        private String query;
+        private String table;
+        private String sql;
+        private String message;
+
+        public Violation() {}
+
+        public Violation(String query, String table, String sql, String message) {
+            this.query = query;
+            this.table = table;
+            this.sql = sql;
+            this.message = message;
+        }
+
+        public String getQuery() { return query; }
+        public String getTable() { return table; }
+        public String getSql() { return sql; }
+        public String getMessage() { return message; }
+
+        @Override
+        public String toString() {
+            return query + (table != null ? " scans " + table : "") + ": " + message
+                    + (sql != null ? "\n" + sql : "");
+        }
+    }
+}
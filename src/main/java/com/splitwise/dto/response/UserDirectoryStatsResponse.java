@@ -0,0 +1,27 @@
+package com.splitwise.dto.response;
+
+public class UserDirectoryStatsResponse {
+    private int size;
+    private int maxSize;
+    private long hits;
+    private long misses;
+
+    public UserDirectoryStatsResponse() {}
+
+    public UserDirectoryStatsResponse(int size, int maxSize, long hits, long misses) {
+        this.size = size;
+        this.maxSize = maxSize;
+        this.hits = hits;
+        this.misses = misses;
+    }
+
+    public int getSize() { return size; }
+    public int getMaxSize() { return maxSize; }
+    public long getHits() { return hits; }
+    public long getMisses() { return misses; }
+
+    public double getHitRatio() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0.0 : (double) hits / lookups;
+    }
+}
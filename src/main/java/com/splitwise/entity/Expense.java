@@ -14,8 +14,10 @@ import java.util.List;
 @NoArgsConstructor
 @AllArgsConstructor
 public class Expense {
+    // Sequence ids (pooled, 50 per round trip) let Hibernate batch inserts; IDENTITY cannot
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "expense_seq")
+    @SequenceGenerator(name = "expense_seq", sequenceName = "expense_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
@@ -39,12 +41,23 @@ public class Expense {
     @OneToMany(mappedBy = "expense", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<Split> splits = new ArrayList<>();
 
+    /** Rows of the user_expense index; written with the expense, never read through here. */
+    @OneToMany(mappedBy = "expense", cascade = CascadeType.PERSIST)
+    private List<ExpenseParticipant> participants = new ArrayList<>();
+
     @Column(nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
+    /** Sequence of the journal record this expense was applied from; null if created directly. */
+    @Column(name = "journal_sequence", unique = true, updatable = false)
+    private Long journalSequence;
+
     @PrePersist
     protected void onCreate() {
-        createdAt = LocalDateTime.now();
+        // Journaled expenses keep the time they were accepted
+        if (createdAt == null) {
+            createdAt = LocalDateTime.now();
+        }
     }
 
     public Long getId() { return id; }
@@ -68,6 +81,12 @@ public class Expense {
     public List<Split> getSplits() { return splits; }
     public void setSplits(List<Split> splits) { this.splits = splits; }
 
+    public List<ExpenseParticipant> getParticipants() { return participants; }
+    public void setParticipants(List<ExpenseParticipant> participants) { this.participants = participants; }
+
     public LocalDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+
+    public Long getJournalSequence() { return journalSequence; }
+    public void setJournalSequence(Long journalSequence) { this.journalSequence = journalSequence; }
 }
@@ -0,0 +1,70 @@
+package com.splitwise.entity;
+
+import com.splitwise.enums.ParticipantRole;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+/**
+ * One way a user is involved in an expense: as its payer or as a participant in its
+ * splits. A payer who also takes a share has one row of each role.
+ *
+ * Written together with the expense and never changed. The expense's creation time is
+ * copied in so that a user's expenses, newest first, are a range of the
+ * (user_id, created_at, expense_id) index and need no join to find.
+ */
+@Entity
+@Table(name = "user_expense",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"user_id", "expense_id", "role"}))
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExpenseParticipant {
+    // Sequence ids (pooled, 50 per round trip) let Hibernate batch inserts; IDENTITY cannot
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_expense_seq")
+    @SequenceGenerator(name = "user_expense_seq", sequenceName = "user_expense_seq", allocationSize = 50)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "expense_id", nullable = false)
+    private Expense expense;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private ParticipantRole role;
+
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    public ExpenseParticipant(User user, Expense expense, ParticipantRole role) {
+        this.user = user;
+        this.expense = expense;
+        this.role = role;
+    }
+
+    @PrePersist
+    protected void onCreate() {
+        // The expense is persisted first, so its creation time is already set
+        createdAt = expense.getCreatedAt();
+    }
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public User getUser() { return user; }
+    public void setUser(User user) { this.user = user; }
+
+    public Expense getExpense() { return expense; }
+    public void setExpense(Expense expense) { this.expense = expense; }
+
+    public ParticipantRole getRole() { return role; }
+    public void setRole(ParticipantRole role) { this.role = role; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+}
@@ -3,12 +3,16 @@ package com.splitwise.entity;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import java.time.LocalDateTime;
 import java.util.HashSet;
 import java.util.Set;
 
 @Entity
 @Table(name = "groups")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "groups")
 @NoArgsConstructor
 @AllArgsConstructor
 public class Group {
@@ -22,6 +26,7 @@ public class Group {
     private String description;
 
     @ManyToMany
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "group-members")
     @JoinTable(
             name = "group_members",
             joinColumns = @JoinColumn(name = "group_id"),
@@ -0,0 +1,34 @@
+package com.splitwise.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+/**
+ * A journal record that was acknowledged but could not be applied. The record itself
+ * is kept in the journal's dead-letter file; this row marks its sequence as handled.
+ */
+@Entity
+@Table(name = "journal_dead_letters")
+@NoArgsConstructor
+@AllArgsConstructor
+public class JournalDeadLetter {
+    @Id
+    private Long sequence;
+
+    @Column(length = 1000)
+    private String error;
+
+    @Column(nullable = false)
+    private LocalDateTime failedAt;
+
+    public Long getSequence() { return sequence; }
+    public void setSequence(Long sequence) { this.sequence = sequence; }
+
+    public String getError() { return error; }
+    public void setError(String error) { this.error = error; }
+
+    public LocalDateTime getFailedAt() { return failedAt; }
+    public void setFailedAt(LocalDateTime failedAt) { this.failedAt = failedAt; }
+}
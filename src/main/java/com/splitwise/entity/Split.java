@@ -10,8 +10,10 @@ import java.math.BigDecimal;
 @NoArgsConstructor
 @AllArgsConstructor
 public class Split {
+    // Sequence ids (pooled, 50 per round trip) let Hibernate batch inserts; IDENTITY cannot
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "split_seq")
+    @SequenceGenerator(name = "split_seq", sequenceName = "split_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne
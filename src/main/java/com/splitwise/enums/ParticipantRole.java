@@ -0,0 +1,6 @@
+package com.splitwise.enums;
+
+public enum ParticipantRole {
+    PAYER,
+    PARTICIPANT
+}
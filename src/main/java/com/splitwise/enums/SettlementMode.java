@@ -0,0 +1,19 @@
+package com.splitwise.enums;
+
+import java.util.Locale;
+
+public enum SettlementMode {
+    GREEDY,
+    OPTIMAL;
+
+    /**
+     * Parses a mode name, ignoring case.
+     */
+    public static SettlementMode parse(String value) {
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid settlement mode: " + value + " (expected GREEDY or OPTIMAL)");
+        }
+    }
+}
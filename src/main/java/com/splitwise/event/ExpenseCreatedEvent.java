@@ -0,0 +1,14 @@
+package com.splitwise.event;
+
+import java.util.Set;
+
+/**
+ * Published inside the transaction that saves one or more expenses; listeners that
+ * only care about committed data use {@code @TransactionalEventListener}.
+ *
+ * @param expenseCount number of expenses saved
+ * @param userIds      payers and participants whose balances changed
+ * @param groupIds     groups of the expenses that belong to one
+ */
+public record ExpenseCreatedEvent(int expenseCount, Set<Long> userIds, Set<Long> groupIds) {
+}
@@ -0,0 +1,9 @@
+package com.splitwise.event;
+
+/**
+ * Published inside the transaction of a ledger rebuild.
+ *
+ * @param driftsCorrected number of ledger rows the rebuild changed
+ */
+public record LedgerRebuiltEvent(int driftsCorrected) {
+}
@@ -0,0 +1,10 @@
+package com.splitwise.exception;
+
+/**
+ * The request was refused because a bounded queue is full; the client should retry later.
+ */
+public class ServiceBusyException extends RuntimeException {
+    public ServiceBusyException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,33 @@
+package com.splitwise.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Recorded by ExpenseService.createExpense. Spans validation, the insert and the
+ * ledger update. Not committed if the expense is rejected.
+ */
+@Name("com.splitwise.CreateExpense")
+@Label("Create Expense")
+@Category({"Splitwise", "Expenses"})
+@Description("Creating one expense, its splits and its ledger deltas")
+@StackTrace(false)
+public class CreateExpenseEvent extends Event {
+
+    @Label("Expense Id")
+    public long expenseId;
+
+    @Label("Split Type")
+    public String splitType;
+
+    @Label("Participants")
+    public int participantCount;
+
+    @Label("Group Id")
+    @Description("0 for expenses outside a group")
+    public long groupId;
+}
@@ -0,0 +1,38 @@
+package com.splitwise.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Recorded whenever net balances are computed or read: applying new expenses to the
+ * ledger, rebuilding it from the expense history, or loading it for a balance call.
+ */
+@Name("com.splitwise.NetBalance")
+@Label("Net Balance")
+@Category({"Splitwise", "Balances"})
+@Description("Computing net balances from expenses, or reading them from the ledger")
+@StackTrace(false)
+public class NetBalanceEvent extends Event {
+
+    public static final String APPLY = "APPLY";
+    public static final String REBUILD = "REBUILD";
+    public static final String READ = "READ";
+
+    @Label("Operation")
+    @Description("APPLY, REBUILD or READ")
+    public String operation;
+
+    @Label("Expenses Scanned")
+    public long expensesScanned;
+
+    @Label("Splits Scanned")
+    public long splitsScanned;
+
+    @Label("Ledger Rows")
+    @Description("Ledger rows updated by APPLY, compared by REBUILD or read by READ")
+    public int ledgerRows;
+}
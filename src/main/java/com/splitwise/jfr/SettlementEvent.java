@@ -0,0 +1,40 @@
+package com.splitwise.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Recorded by SettlementSolver.settle for every settlement, with its input size and
+ * the number of transactions produced.
+ */
+@Name("com.splitwise.Settlement")
+@Label("Settlement")
+@Category({"Splitwise", "Balances"})
+@Description("Simplifying net balances into transactions")
+@StackTrace(false)
+public class SettlementEvent extends Event {
+
+    @Label("Requested Mode")
+    public String mode;
+
+    @Label("Algorithm")
+    @Description("Algorithm that produced the result, including any greedy fallback")
+    public String algorithm;
+
+    @Label("Debtors")
+    public int debtors;
+
+    @Label("Creditors")
+    public int creditors;
+
+    @Label("Components")
+    @Description("Zero-sum components solved independently; 1 for GREEDY")
+    public int components;
+
+    @Label("Transactions")
+    public int transactions;
+}
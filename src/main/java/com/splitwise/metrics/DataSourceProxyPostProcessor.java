@@ -0,0 +1,46 @@
+package com.splitwise.metrics;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+import javax.sql.DataSource;
+import java.util.List;
+
+/**
+ * Wraps the application's DataSource in a datasource-proxy that reports every executed
+ * statement, and how long it took, to {@link SqlStatementCounter}, and the statement itself
+ * to {@link SqlStatementCapture}. A JDBC batch counts
+ * as one statement, since it is one round trip.
+ */
+@Component
+public class DataSourceProxyPostProcessor implements BeanPostProcessor {
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource dataSource && !(bean instanceof ProxyDataSource)) {
+            return ProxyDataSourceBuilder.create(dataSource)
+                    .name(beanName)
+                    .listener(new CountingListener())
+                    .build();
+        }
+        return bean;
+    }
+
+    private static class CountingListener implements QueryExecutionListener {
+
+        @Override
+        public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+            SqlStatementCounter.beforeStatement();
+        }
+
+        @Override
+        public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+            SqlStatementCounter.afterStatement();
+            SqlStatementCapture.afterStatement(queryInfoList);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.splitwise.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Distribution summaries describing the size of the work the services do, and the SQL
+ * each request executes. Percentile histograms are enabled for every splitwise.* meter
+ * in application.yml.
+ */
+@Component
+public class DomainMetrics {
+
+    private final MeterRegistry registry;
+    private final DistributionSummary splitsPerExpense;
+    private final DistributionSummary ledgerRowsRead;
+    private final DistributionSummary expensesApplied;
+    private final DistributionSummary expensesRebuilt;
+    private final DistributionSummary journalCommitRecords;
+    private final Counter journalDeadLetters;
+    private final DistributionSummary writeBehindBatchExpenses;
+
+    public DomainMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.splitsPerExpense = DistributionSummary.builder("splitwise.expense.splits")
+                .description("Splits per created expense")
+                .baseUnit("splits")
+                .register(registry);
+        this.ledgerRowsRead = DistributionSummary.builder("splitwise.balance.ledger.rows")
+                .description("Ledger rows read per balance call")
+                .baseUnit("rows")
+                .register(registry);
+        this.expensesApplied = DistributionSummary.builder("splitwise.ledger.apply.expenses")
+                .description("Expenses applied to the ledger per write")
+                .baseUnit("expenses")
+                .register(registry);
+        this.expensesRebuilt = DistributionSummary.builder("splitwise.ledger.rebuild.expenses")
+                .description("Expenses scanned per ledger rebuild")
+                .baseUnit("expenses")
+                .register(registry);
+        this.journalCommitRecords = DistributionSummary.builder("splitwise.journal.commit.records")
+                .description("Journal records made durable per fsync")
+                .baseUnit("records")
+                .register(registry);
+        this.journalDeadLetters = Counter.builder("splitwise.journal.dead-letters")
+                .description("Acknowledged journal records that could not be applied")
+                .baseUnit("records")
+                .register(registry);
+        this.writeBehindBatchExpenses = DistributionSummary.builder("splitwise.write-behind.batch.expenses")
+                .description("Expenses committed per write-behind transaction")
+                .baseUnit("expenses")
+                .register(registry);
+    }
+
+    public void recordSplits(int splits) {
+        splitsPerExpense.record(splits);
+    }
+
+    public void recordLedgerRowsRead(int rows) {
+        ledgerRowsRead.record(rows);
+    }
+
+    public void recordExpensesApplied(int expenses) {
+        expensesApplied.record(expenses);
+    }
+
+    public void recordExpensesRebuilt(long expenses) {
+        expensesRebuilt.record(expenses);
+    }
+
+    public void recordJournalCommit(int records) {
+        journalCommitRecords.record(records);
+    }
+
+    public void recordJournalDeadLetter() {
+        journalDeadLetters.increment();
+    }
+
+    public void recordWriteBehindBatch(int expenses) {
+        writeBehindBatchExpenses.record(expenses);
+    }
+
+    /**
+     * Records the inputs and output size of one settlement, tagged by the algorithm used.
+     */
+    public void recordSettlement(String algorithm, int debtors, int creditors, int transactions) {
+        summary("splitwise.settlement.debtors", "Users owing money per settlement", "users", algorithm)
+                .record(debtors);
+        summary("splitwise.settlement.creditors", "Users owed money per settlement", "users", algorithm)
+                .record(creditors);
+        summary("splitwise.settlement.transactions", "Transactions emitted per settlement", "transactions", algorithm)
+                .record(transactions);
+    }
+
+    /**
+     * Records how many SQL statements one request executed and how long they took.
+     */
+    public void recordSql(String method, String uri, long statements, long nanos) {
+        DistributionSummary.builder("splitwise.http.sql.statements")
+                .description("SQL statements executed per request")
+                .baseUnit("statements")
+                .tag("method", method)
+                .tag("uri", uri)
+                .register(registry)
+                .record(statements);
+        Timer.builder("splitwise.http.sql.time")
+                .description("Time spent executing SQL per request")
+                .tag("method", method)
+                .tag("uri", uri)
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    private DistributionSummary summary(String name, String description, String baseUnit, String algorithm) {
+        return DistributionSummary.builder(name)
+                .description(description)
+                .baseUnit(baseUnit)
+                .tag("algorithm", algorithm)
+                .register(registry);
+    }
+}
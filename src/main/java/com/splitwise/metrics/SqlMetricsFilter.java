@@ -0,0 +1,65 @@
+package com.splitwise.metrics;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+import java.io.IOException;
+
+/**
+ * Counts the SQL statements each request executes, records the count and the time spent
+ * in SQL per endpoint, and logs a warning when a request goes over the statement budget.
+ * Only statements on the request thread are counted, so work a request hands to another
+ * thread, such as the streamed export, is not included.
+ */
+@Component
+public class SqlMetricsFilter extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(SqlMetricsFilter.class);
+
+    private final DomainMetrics domainMetrics;
+    private final int statementBudget;
+
+    public SqlMetricsFilter(DomainMetrics domainMetrics,
+                            @Value("${splitwise.sql.statement-budget:25}") int statementBudget) {
+        this.domainMetrics = domainMetrics;
+        this.statementBudget = statementBudget;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        SqlStatementCounter.start();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            SqlStatementCounter.Result result = SqlStatementCounter.stop();
+            String uri = uriPattern(request);
+            domainMetrics.recordSql(request.getMethod(), uri, result.statements(), result.nanos());
+
+            if (result.statements() > statementBudget) {
+                log.warn("{} {} executed {} SQL statements, over the budget of {} (possible N+1 query)",
+                        request.getMethod(), request.getRequestURI(), result.statements(), statementBudget);
+            }
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return request.getRequestURI().startsWith(request.getContextPath() + "/actuator");
+    }
+
+    /**
+     * The matched handler pattern, such as /api/users/{id}, so ids do not become tags.
+     */
+    private static String uriPattern(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return pattern != null ? pattern.toString() : "UNKNOWN";
+    }
+}
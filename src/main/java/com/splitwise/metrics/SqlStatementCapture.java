@@ -0,0 +1,73 @@
+package com.splitwise.metrics;
+
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.proxy.ParameterSetOperation;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records the SQL statements executed on the current thread between {@link #start()} and
+ * {@link #stop()}, exactly as the datasource proxy sees them, with the parameters of their
+ * first execution. Statements on threads that never called start are not recorded.
+ */
+public final class SqlStatementCapture {
+
+    private static final ThreadLocal<List<CapturedStatement>> STATEMENTS = new ThreadLocal<>();
+
+    private SqlStatementCapture() {
+    }
+
+    public static void start() {
+        STATEMENTS.set(new ArrayList<>());
+    }
+
+    /**
+     * Called by the datasource proxy after each statement, or each batch, is executed.
+     */
+    static void afterStatement(List<QueryInfo> queries) {
+        List<CapturedStatement> statements = STATEMENTS.get();
+        if (statements == null) {
+            return;
+        }
+        for (QueryInfo query : queries) {
+            statements.add(new CapturedStatement(query.getQuery(), firstParameters(query)));
+        }
+    }
+
+    /**
+     * Stops recording and returns the statements recorded, in execution order.
+     */
+    public static List<CapturedStatement> stop() {
+        List<CapturedStatement> statements = STATEMENTS.get();
+        STATEMENTS.remove();
+        return statements != null ? statements : List.of();
+    }
+
+    /**
+     * Positional parameter values of the first execution; a batch repeats the statement
+     * with other values.
+     */
+    private static Object[] firstParameters(QueryInfo query) {
+        if (query.getParametersList().isEmpty()) {
+            return new Object[0];
+        }
+        List<ParameterSetOperation> operations = query.getParametersList().get(0);
+        int count = 0;
+        for (ParameterSetOperation operation : operations) {
+            if (operation.getArgs()[0] instanceof Integer index) {
+                count = Math.max(count, index);
+            }
+        }
+        Object[] parameters = new Object[count];
+        for (ParameterSetOperation operation : operations) {
+            if (operation.getArgs()[0] instanceof Integer index) {
+                parameters[index - 1] = ParameterSetOperation.isSetNullParameterOperation(operation)
+                        ? null
+                        : operation.getArgs()[1];
+            }
+        }
+        return parameters;
+    }
+
+    public record CapturedStatement(String sql, Object[] parameters) {}
+}
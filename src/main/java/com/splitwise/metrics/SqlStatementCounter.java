@@ -0,0 +1,66 @@
+package com.splitwise.metrics;
+
+/**
+ * Counts SQL statements executed on the current thread between {@link #start()} and
+ * {@link #stop()}, and the time spent executing them. Statements on threads that never
+ * called start are not counted.
+ */
+public final class SqlStatementCounter {
+
+    private static final int COUNT = 0;
+    private static final int NANOS = 1;
+    private static final int STARTED_AT = 2;
+
+    private static final ThreadLocal<long[]> STATE = new ThreadLocal<>();
+
+    private SqlStatementCounter() {
+    }
+
+    public static void start() {
+        STATE.set(new long[3]);
+    }
+
+    public static boolean isActive() {
+        return STATE.get() != null;
+    }
+
+    /**
+     * Called by the datasource proxy before each statement, or each batch, is executed.
+     */
+    public static void beforeStatement() {
+        long[] state = STATE.get();
+        if (state != null) {
+            state[STARTED_AT] = System.nanoTime();
+        }
+    }
+
+    /**
+     * Called by the datasource proxy after each statement, or each batch, is executed.
+     */
+    public static void afterStatement() {
+        long[] state = STATE.get();
+        if (state != null) {
+            state[COUNT]++;
+            state[NANOS] += System.nanoTime() - state[STARTED_AT];
+        }
+    }
+
+    /**
+     * Statements counted so far on this thread, 0 if counting was not started.
+     */
+    public static long current() {
+        long[] state = STATE.get();
+        return state != null ? state[COUNT] : 0;
+    }
+
+    /**
+     * Stops counting and returns what was counted.
+     */
+    public static Result stop() {
+        long[] state = STATE.get();
+        STATE.remove();
+        return state != null ? new Result(state[COUNT], state[NANOS]) : new Result(0, 0);
+    }
+
+    public record Result(long statements, long nanos) {}
+}
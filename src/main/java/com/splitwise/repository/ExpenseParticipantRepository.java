@@ -0,0 +1,32 @@
+package com.splitwise.repository;
+
+import com.splitwise.entity.ExpenseParticipant;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Seek queries for a user's expenses, newest first, read from the user_expense index
+ * rather than from expenses and splits. A user who paid for an expense and also has a
+ * share in it has two rows for it; grouping keeps one, and since both rows sit next to
+ * each other in index order this does not need a sort.
+ */
+@Repository
+public interface ExpenseParticipantRepository extends JpaRepository<ExpenseParticipant, Long> {
+
+    @Query("SELECT p.expense.id FROM ExpenseParticipant p WHERE p.user.id = :userId " +
+            "GROUP BY p.createdAt, p.expense.id ORDER BY p.createdAt DESC, p.expense.id DESC")
+    List<Long> findPageExpenseIds(@Param("userId") Long userId, Limit limit);
+
+    @Query("SELECT p.expense.id FROM ExpenseParticipant p WHERE p.user.id = :userId " +
+            "AND p.createdAt <= :createdAt AND (p.createdAt < :createdAt OR p.expense.id < :id) " +
+            "GROUP BY p.createdAt, p.expense.id ORDER BY p.createdAt DESC, p.expense.id DESC")
+    List<Long> findPageExpenseIdsAfter(@Param("userId") Long userId,
+                                       @Param("createdAt") LocalDateTime createdAt,
+                                       @Param("id") Long id,
+                                       Limit limit);
+}
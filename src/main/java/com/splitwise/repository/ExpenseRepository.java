@@ -1,19 +1,89 @@
 package com.splitwise.repository;
 
 import com.splitwise.entity.Expense;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
+/**
+ * Listing queries load the payer, group, splits and split users through an entity graph,
+ * so building responses costs one SQL statement no matter how many expenses are returned.
+ *
+ * Listings are paged by seeking on (createdAt, id), newest first. The seek queries only
+ * select ids; a page's details are then fetched by id so the collection fetch does not
+ * interfere with the row limit. Seek predicates state createdAt &lt;= :createdAt on its
+ * own so that the index range starts at the cursor. A user's expenses are paged from the
+ * user_expense index instead, see {@link ExpenseParticipantRepository}.
+ */
 @Repository
 public interface ExpenseRepository extends JpaRepository<Expense, Long> {
 
-    @Query("SELECT e FROM Expense e WHERE e.group.id = :groupId")
-    List<Expense> findByGroupId(@Param("groupId") Long groupId);
+    @EntityGraph(attributePaths = {"paidBy", "group", "splits", "splits.user"})
+    @Query("SELECT e FROM Expense e")
+    List<Expense> findAllWithDetails();
 
-    @Query("SELECT DISTINCT e FROM Expense e LEFT JOIN e.splits s " +
-            "WHERE e.paidBy.id = :userId OR s.user.id = :userId")
-    List<Expense> findByUserId(@Param("userId") Long userId);
+    /**
+     * Expenses newer than a balance checkpoint.
+     */
+    @EntityGraph(attributePaths = {"paidBy", "group", "splits", "splits.user"})
+    @Query("SELECT e FROM Expense e WHERE e.id > :id")
+    List<Expense> findAllWithDetailsByIdGreaterThan(@Param("id") Long id);
+
+    /**
+     * Balance sums of expenses newer than a balance checkpoint, computed by the database.
+     * Rows are (paid, user id, group id, sum, rows, highest expense id): paid is 1 for the
+     * amount each user paid per group and 0 for the split amounts each user owes per group.
+     * Group id is null for expenses outside any group. Both halves are one statement, so
+     * they see the same expenses.
+     */
+    @Query("SELECT 1, e.paidBy.id, e.group.id, SUM(e.amount), COUNT(e), MAX(e.id) FROM Expense e " +
+            "WHERE e.id > :id GROUP BY e.paidBy.id, e.group.id " +
+            "UNION ALL " +
+            "SELECT 0, s.user.id, s.expense.group.id, SUM(s.amount), COUNT(s), MAX(s.expense.id) FROM Split s " +
+            "WHERE s.expense.id > :id GROUP BY s.user.id, s.expense.group.id")
+    List<Object[]> sumBalancesByIdGreaterThan(@Param("id") Long id);
+
+    long countByIdLessThanEqual(Long id);
+
+    /**
+     * Highest journal sequence applied so far; the journal applier resumes after it.
+     */
+    @Query("SELECT MAX(e.journalSequence) FROM Expense e")
+    Long findMaxJournalSequence();
+
+    @Query("SELECT e.createdAt FROM Expense e WHERE e.id = :id")
+    Optional<LocalDateTime> findCreatedAtById(@Param("id") Long id);
+
+    @EntityGraph(attributePaths = {"paidBy", "group", "splits", "splits.user"})
+    @Query("SELECT e FROM Expense e WHERE e.id IN :ids")
+    List<Expense> findWithDetailsByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT e.id FROM Expense e ORDER BY e.createdAt DESC, e.id DESC")
+    List<Long> findPageIds(Limit limit);
+
+    @Query("SELECT e.id FROM Expense e " +
+            "WHERE e.createdAt <= :createdAt AND (e.createdAt < :createdAt OR e.id < :id) " +
+            "ORDER BY e.createdAt DESC, e.id DESC")
+    List<Long> findPageIdsAfter(@Param("createdAt") LocalDateTime createdAt,
+                                @Param("id") Long id,
+                                Limit limit);
+
+    @Query("SELECT e.id FROM Expense e WHERE e.group.id = :groupId " +
+            "ORDER BY e.createdAt DESC, e.id DESC")
+    List<Long> findPageIdsByGroupId(@Param("groupId") Long groupId, Limit limit);
+
+    @Query("SELECT e.id FROM Expense e WHERE e.group.id = :groupId " +
+            "AND e.createdAt <= :createdAt AND (e.createdAt < :createdAt OR e.id < :id) " +
+            "ORDER BY e.createdAt DESC, e.id DESC")
+    List<Long> findPageIdsByGroupIdAfter(@Param("groupId") Long groupId,
+                                         @Param("createdAt") LocalDateTime createdAt,
+                                         @Param("id") Long id,
+                                         Limit limit);
 }
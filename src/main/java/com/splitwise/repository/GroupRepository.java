@@ -1,9 +1,15 @@
 package com.splitwise.repository;
 
 import com.splitwise.entity.Group;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
+import java.util.List;
 
 @Repository
 public interface GroupRepository extends JpaRepository<Group, Long> {
+
+    @Override
+    @EntityGraph(attributePaths = "members")
+    List<Group> findAll();
 }
@@ -0,0 +1,13 @@
+package com.splitwise.repository;
+
+import com.splitwise.entity.JournalDeadLetter;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface JournalDeadLetterRepository extends JpaRepository<JournalDeadLetter, Long> {
+
+    @Query("SELECT MAX(d.sequence) FROM JournalDeadLetter d")
+    Long findMaxSequence();
+}
@@ -0,0 +1,66 @@
+package com.splitwise.repository;
+
+import com.splitwise.entity.LedgerEntry;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface LedgerEntryRepository extends JpaRepository<LedgerEntry, Long>, LedgerEntryRepositoryCustom {
+
+    /**
+     * Overall balances, one row per user that has ever been part of an expense.
+     */
+    @Query("SELECT l FROM LedgerEntry l WHERE l.group IS NULL")
+    List<LedgerEntry> findUserTotals();
+
+    /**
+     * Non-zero balances within groups, used to split settlement into independent parts.
+     */
+    @Query("SELECT l FROM LedgerEntry l WHERE l.group IS NOT NULL AND l.balance <> 0")
+    List<LedgerEntry> findNonZeroGroupBalances();
+
+    /**
+     * Every ledger row of the given users, overall and per group.
+     */
+    @Query("SELECT l FROM LedgerEntry l WHERE l.user.id IN :userIds")
+    List<LedgerEntry> findByUserIds(@Param("userIds") Collection<Long> userIds);
+
+    /**
+     * Locks every ledger row so that expense writers queue up behind a rebuild.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT l FROM LedgerEntry l")
+    List<LedgerEntry> lockAll();
+
+    /**
+     * Atomically adds a delta to a user's overall balance.
+     * Returns the number of rows updated, 0 if the user has no ledger row yet.
+     */
+    @Modifying
+    @Query("UPDATE LedgerEntry l SET l.balance = l.balance + :delta, l.updatedAt = :now " +
+            "WHERE l.user.id = :userId AND l.group IS NULL")
+    int addToUserTotal(@Param("userId") Long userId,
+                       @Param("delta") BigDecimal delta,
+                       @Param("now") LocalDateTime now);
+
+    /**
+     * Atomically adds a delta to a user's balance within a group.
+     * Returns the number of rows updated, 0 if the user has no ledger row for the group yet.
+     */
+    @Modifying
+    @Query("UPDATE LedgerEntry l SET l.balance = l.balance + :delta, l.updatedAt = :now " +
+            "WHERE l.user.id = :userId AND l.group.id = :groupId")
+    int addToGroupBalance(@Param("userId") Long userId,
+                          @Param("groupId") Long groupId,
+                          @Param("delta") BigDecimal delta,
+                          @Param("now") LocalDateTime now);
+}
@@ -0,0 +1,17 @@
+package com.splitwise.repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Ledger writes that go around the persistence context.
+ */
+public interface LedgerEntryRepositoryCustom {
+
+    /**
+     * Inserts a ledger row for a user, overall or within a group, unless another transaction
+     * has already created it. Returns false in that case; the row is then committed and the
+     * caller adds its delta to it instead.
+     */
+    boolean insertIfAbsent(Long userId, Long groupId, BigDecimal balance, LocalDateTime now);
+}
@@ -0,0 +1,34 @@
+package com.splitwise.repository;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+/**
+ * Runs the insert through JDBC on the transaction's connection: a duplicate key raised
+ * through the EntityManager would mark the whole transaction rollback-only, while here it
+ * only fails the one statement.
+ */
+class LedgerEntryRepositoryCustomImpl implements LedgerEntryRepositoryCustom {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    LedgerEntryRepositoryCustomImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public boolean insertIfAbsent(Long userId, Long groupId, BigDecimal balance, LocalDateTime now) {
+        try {
+            jdbcTemplate.update("INSERT INTO balance_ledger (user_id, group_id, balance, updated_at) " +
+                    "VALUES (?, ?, ?, ?)", userId, groupId, balance, Timestamp.valueOf(now));
+            return true;
+        } catch (DuplicateKeyException e) {
+            // The unique key waits for the transaction that holds the other row, so by now it
+            // has committed; had it rolled back, this insert would have succeeded
+            return false;
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package com.splitwise.repository;
+
+import com.splitwise.dto.response.QueryPlanReportResponse;
+import com.splitwise.dto.response.QueryPlanReportResponse.Violation;
+import com.splitwise.entity.Group;
+import com.splitwise.entity.User;
+import com.splitwise.metrics.SqlStatementCapture;
+import com.splitwise.metrics.SqlStatementCapture.CapturedStatement;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Hibernate;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Calls every repository query and runs EXPLAIN on the SQL it actually executed, as
+ * captured by the datasource proxy, reporting any statement that reads a table without an
+ * index. Queries that list a whole table name it as an allowed scan; their joins must
+ * still go through an index. Each query runs in its own transaction, which is rolled back,
+ * with ids that do not exist so the second-level cache cannot answer it.
+ *
+ * A new repository query needs a call added below. Only the H2 plan format is understood;
+ * on other databases nothing is checked.
+ *
+ * Runs at startup unless splitwise.sql.plan-check is OFF: FAIL stops startup on a table
+ * scan, WARN only logs it. The report is also served on demand for the SQL statement verifier.
+ */
+@Component
+public class QueryPlanVerifier {
+
+    private static final Logger log = LoggerFactory.getLogger(QueryPlanVerifier.class);
+
+    private static final String TABLE_SCAN = ".TABLESCAN";
+    private static final Long MISSING_ID = -1L;
+    private static final Limit PAGE = Limit.of(51);
+
+    public enum Mode { FAIL, WARN, OFF }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final ExpenseRepository expenseRepository;
+    private final ExpenseParticipantRepository expenseParticipantRepository;
+    private final SplitRepository splitRepository;
+    private final UserRepository userRepository;
+    private final GroupRepository groupRepository;
+    private final LedgerEntryRepository ledgerEntryRepository;
+    private final JournalDeadLetterRepository journalDeadLetterRepository;
+    private final Mode mode;
+
+    public QueryPlanVerifier(JdbcTemplate jdbcTemplate,
+                             EntityManager entityManager,
+                             PlatformTransactionManager transactionManager,
+                             ExpenseRepository expenseRepository,
+                             ExpenseParticipantRepository expenseParticipantRepository,
+                             SplitRepository splitRepository,
+                             UserRepository userRepository,
+                             GroupRepository groupRepository,
+                             LedgerEntryRepository ledgerEntryRepository,
+                             JournalDeadLetterRepository journalDeadLetterRepository,
+                             @Value("${splitwise.sql.plan-check:FAIL}") Mode mode) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.expenseRepository = expenseRepository;
+        this.expenseParticipantRepository = expenseParticipantRepository;
+        this.splitRepository = splitRepository;
+        this.userRepository = userRepository;
+        this.groupRepository = groupRepository;
+        this.ledgerEntryRepository = ledgerEntryRepository;
+        this.journalDeadLetterRepository = journalDeadLetterRepository;
+        this.mode = mode;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void verify() {
+        if (mode == Mode.OFF) {
+            return;
+        }
+        QueryPlanReportResponse report = report();
+        if (report.getQueriesChecked() == 0) {
+            log.info("Skipping query plan check: plans of {} are not understood", report.getDatabase());
+            return;
+        }
+
+        List<Violation> violations = report.getViolations();
+        if (violations.isEmpty()) {
+            log.info("Query plan check passed: {} statements of {} queries read through an index",
+                    report.getStatementsChecked(), report.getQueriesChecked());
+        } else if (mode == Mode.FAIL) {
+            throw new IllegalStateException("Queries without a usable index:\n"
+                    + String.join("\n\n", violations.stream().map(Violation::toString).toList()));
+        } else {
+            violations.forEach(violation -> log.warn("Query without a usable index: {}", violation));
+        }
+    }
+
+    /**
+     * Runs every query and explains the statements it executed. Reports no queries checked
+     * on a database other than H2.
+     */
+    public QueryPlanReportResponse report() {
+        String database = jdbcTemplate.execute((ConnectionCallback<String>) c -> c.getMetaData().getDatabaseProductName());
+        if (!"H2".equals(database)) {
+            return new QueryPlanReportResponse(database, 0, 0, List.of());
+        }
+
+        List<Check> checks = checks();
+        List<Violation> violations = new ArrayList<>();
+        int statementsChecked = 0;
+        for (Check check : checks) {
+            List<CapturedStatement> statements;
+            SqlStatementCapture.start();
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    status.setRollbackOnly();
+                    check.query().run();
+                });
+            } catch (RuntimeException e) {
+                violations.add(new Violation(check.name(), null, null, "query failed: " + e.getMessage()));
+                continue;
+            } finally {
+                statements = SqlStatementCapture.stop();
+            }
+
+            List<CapturedStatement> explainable = statements.stream().filter(QueryPlanVerifier::isExplainable).toList();
+            if (explainable.isEmpty()) {
+                violations.add(new Violation(check.name(), null, null, "executed no SQL to explain"));
+            }
+            for (CapturedStatement statement : explainable) {
+                statementsChecked++;
+                String plan = jdbcTemplate.queryForObject("EXPLAIN " + statement.sql(), String.class,
+                        statement.parameters());
+                for (String table : scannedTables(plan)) {
+                    if (!check.allowedScans().contains(table)) {
+                        violations.add(new Violation(check.name(), table, statement.sql(), plan));
+                    }
+                }
+            }
+        }
+        return new QueryPlanReportResponse(database, checks.size(), statementsChecked, violations);
+    }
+
+    private static boolean isExplainable(CapturedStatement statement) {
+        String sql = statement.sql().stripLeading().toLowerCase(Locale.ROOT);
+        return sql.startsWith("select") || sql.startsWith("update") || sql.startsWith("delete");
+    }
+
+    /**
+     * Tables the plan reads in full. H2 marks them with a comment such as
+     * PUBLIC.EXPENSES.tableScan in place of an index name.
+     */
+    static List<String> scannedTables(String plan) {
+        List<String> tables = new ArrayList<>();
+        String upper = plan.toUpperCase(Locale.ROOT);
+        int end = upper.indexOf(TABLE_SCAN);
+        while (end >= 0) {
+            int start = upper.lastIndexOf('.', end - 1) + 1;
+            // Names that are keywords, such as GROUPS, come quoted
+            tables.add(upper.substring(start, end).replace("\"", ""));
+            end = upper.indexOf(TABLE_SCAN, end + 1);
+        }
+        return tables;
+    }
+
+    private List<Check> checks() {
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> ids = List.of(MISSING_ID, -2L, -3L);
+        List<Check> checks = new ArrayList<>(List.of(
+                // ExpenseRepository
+                new Check("ExpenseRepository.findAllWithDetails", Set.of("EXPENSES"),
+                        expenseRepository::findAllWithDetails),
+                new Check("ExpenseRepository.findAllWithDetailsByIdGreaterThan",
+                        () -> expenseRepository.findAllWithDetailsByIdGreaterThan(Long.MAX_VALUE)),
+                new Check("ExpenseRepository.findWithDetailsByIdIn",
+                        () -> expenseRepository.findWithDetailsByIdIn(ids)),
+                new Check("ExpenseRepository.sumBalancesByIdGreaterThan",
+                        () -> expenseRepository.sumBalancesByIdGreaterThan(Long.MAX_VALUE)),
+                new Check("ExpenseRepository.countByIdLessThanEqual",
+                        () -> expenseRepository.countByIdLessThanEqual(MISSING_ID)),
+                new Check("ExpenseRepository.findMaxJournalSequence", expenseRepository::findMaxJournalSequence),
+                new Check("ExpenseRepository.findCreatedAtById",
+                        () -> expenseRepository.findCreatedAtById(MISSING_ID)),
+                new Check("ExpenseRepository.findPageIds", () -> expenseRepository.findPageIds(PAGE)),
+                new Check("ExpenseRepository.findPageIdsAfter",
+                        () -> expenseRepository.findPageIdsAfter(now, MISSING_ID, PAGE)),
+                new Check("ExpenseRepository.findPageIdsByGroupId",
+                        () -> expenseRepository.findPageIdsByGroupId(MISSING_ID, PAGE)),
+                new Check("ExpenseRepository.findPageIdsByGroupIdAfter",
+                        () -> expenseRepository.findPageIdsByGroupIdAfter(MISSING_ID, now, MISSING_ID, PAGE)),
+
+                // ExpenseParticipantRepository
+                new Check("ExpenseParticipantRepository.findPageExpenseIds",
+                        () -> expenseParticipantRepository.findPageExpenseIds(MISSING_ID, PAGE)),
+                new Check("ExpenseParticipantRepository.findPageExpenseIdsAfter",
+                        () -> expenseParticipantRepository.findPageExpenseIdsAfter(MISSING_ID, now, MISSING_ID, PAGE)),
+
+                // SplitRepository; the NDJSON export streams every split
+                new Check("SplitRepository.streamAllWithExpense", Set.of("SPLITS"), () -> {
+                    try (Stream<?> splits = splitRepository.streamAllWithExpense()) {
+                        splits.findFirst();
+                    }
+                }),
+
+                // UserRepository, and the lookups UserDirectory makes through the session
+                new Check("UserRepository.findAll", Set.of("USERS"), userRepository::findAll),
+                new Check("UserRepository.findById", () -> userRepository.findById(MISSING_ID)),
+                new Check("UserDirectory.findUsers", () -> entityManager.unwrap(Session.class)
+                        .byMultipleIds(User.class)
+                        .enableOrderedReturn(false)
+                        .multiLoad(ids)),
+                new Check("UserRepository.findByEmail", () -> userRepository.findByEmail("missing@example.com")),
+                new Check("UserRepository.findByPhoneNumber", () -> userRepository.findByPhoneNumber("+0")),
+                new Check("UserRepository.existsByEmail", () -> userRepository.existsByEmail("missing@example.com")),
+                new Check("UserRepository.existsByPhoneNumber", () -> userRepository.existsByPhoneNumber("+0")),
+
+                // GroupRepository
+                new Check("GroupRepository.findAll", Set.of("GROUPS"), groupRepository::findAll),
+                new Check("GroupRepository.findById", () -> groupRepository.findById(MISSING_ID)),
+
+                // LedgerEntryRepository; snapshot loads and the rebuild lock read the whole ledger
+                new Check("LedgerEntryRepository.findUserTotals", ledgerEntryRepository::findUserTotals),
+                new Check("LedgerEntryRepository.findNonZeroGroupBalances", Set.of("BALANCE_LEDGER"),
+                        ledgerEntryRepository::findNonZeroGroupBalances),
+                new Check("LedgerEntryRepository.lockAll", Set.of("BALANCE_LEDGER"), ledgerEntryRepository::lockAll),
+                new Check("LedgerEntryRepository.findByUserIds", () -> ledgerEntryRepository.findByUserIds(ids)),
+                new Check("LedgerEntryRepository.addToUserTotal",
+                        () -> ledgerEntryRepository.addToUserTotal(MISSING_ID, BigDecimal.ONE, now)),
+                new Check("LedgerEntryRepository.addToGroupBalance",
+                        () -> ledgerEntryRepository.addToGroupBalance(MISSING_ID, MISSING_ID, BigDecimal.ONE, now)),
+
+                // JournalDeadLetterRepository; a BIGINT primary key is H2's row key, whose index the plan
+                // names tableScan although the MAX is a direct lookup at its end
+                new Check("JournalDeadLetterRepository.findMaxSequence", Set.of("JOURNAL_DEAD_LETTERS"),
+                        journalDeadLetterRepository::findMaxSequence)
+        ));
+
+        // Members are loaded lazily by group id, so this needs a group that exists
+        Long groupId = jdbcTemplate.queryForObject("SELECT MIN(id) FROM groups", Long.class);
+        if (groupId != null) {
+            checks.add(new Check("Group.members", () -> {
+                entityManager.getEntityManagerFactory().getCache().unwrap(org.hibernate.Cache.class)
+                        .evictCollectionData(Group.class.getName() + ".members", groupId);
+                Hibernate.initialize(entityManager.find(Group.class, groupId).getMembers());
+            }));
+        }
+        return checks;
+    }
+
+    /**
+     * @param allowedScans upper-case names of tables the query is meant to read in full
+     */
+    private record Check(String name, Set<String> allowedScans, Runnable query) {
+
+        Check(String name, Runnable query) {
+            this(name, Set.of(), query);
+        }
+    }
+}
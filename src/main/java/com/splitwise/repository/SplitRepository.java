@@ -0,0 +1,28 @@
+package com.splitwise.repository;
+
+import com.splitwise.entity.Split;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.stereotype.Repository;
+import java.util.stream.Stream;
+
+@Repository
+public interface SplitRepository extends JpaRepository<Split, Long> {
+
+    /**
+     * Streams every split together with its expense, payer, group and user, ordered so that
+     * the splits of one expense arrive consecutively. One row per split means the stream
+     * never has to hold a whole expense graph, however large the history is.
+     * The caller must consume it inside a transaction and close it.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT s FROM Split s JOIN FETCH s.expense e JOIN FETCH e.paidBy LEFT JOIN FETCH e.group " +
+            "JOIN FETCH s.user ORDER BY e.id, s.id")
+    Stream<Split> streamAllWithExpense();
+}
@@ -0,0 +1,359 @@
+package com.splitwise.service;
+
+import com.splitwise.entity.Expense;
+import com.splitwise.repository.ExpenseRepository;
+import com.splitwise.util.Money;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32C;
+
+/**
+ * Keeps a checkpoint of the balances computed from expenses, so recomputing them only
+ * has to replay expenses written since the checkpoint rather than the whole history.
+ *
+ * The checkpoint is a memory-mapped file holding every non-zero balance together with
+ * the highest expense id it covers. It is written after each ledger rebuild and every
+ * splitwise.balance.checkpoint.interval-seconds. Expenses are never changed or deleted,
+ * so the checkpoint stays valid as long as the expenses it covers are the ones in the
+ * database. That is checked before every use:
+ * - the number of expenses up to the highest id must match, which catches a transaction
+ *   that committed a lower id after the checkpoint was taken
+ * - the highest expense must have the recorded creation time, which catches a database
+ *   that was recreated since
+ * When either check fails, every expense is replayed.
+ *
+ * Expenses after the checkpoint are summed according to splitwise.balance.rebuild-strategy:
+ * SQL has the database add them up per user and group, so no expense is loaded;
+ * REPLAY loads each expense with its splits and adds them up in {@link NetBalanceAggregator}.
+ *
+ * Disabled when splitwise.balance.checkpoint.path is empty.
+ */
+@Service
+public class BalanceCheckpointService {
+
+    private static final Logger log = LoggerFactory.getLogger(BalanceCheckpointService.class);
+
+    private static final int MAGIC = 0x53574250;  // "SWBP"
+    private static final int FORMAT_VERSION = 1;
+    /** magic, version, highest id, expense count, created-at seconds and nanos, entry count */
+    private static final int HEADER_BYTES = 4 + 4 + 8 + 8 + 8 + 4 + 4;
+    /** user id, group id (0 for the overall balance), balance in cents */
+    private static final int ENTRY_BYTES = 8 + 8 + 8;
+    private static final int CHECKSUM_BYTES = 8;
+
+    private final ExpenseRepository expenseRepository;
+    private final NetBalanceAggregator netBalanceAggregator;
+    private final TransactionTemplate readOnlyTransaction;
+    private final Strategy strategy;
+    private final Path path;
+    private final ScheduledExecutorService scheduler;
+
+    public BalanceCheckpointService(ExpenseRepository expenseRepository,
+                                    NetBalanceAggregator netBalanceAggregator,
+                                    PlatformTransactionManager transactionManager,
+                                    @Value("${splitwise.balance.rebuild-strategy:SQL}") Strategy strategy,
+                                    @Value("${splitwise.balance.checkpoint.path:}") String path,
+                                    @Value("${splitwise.balance.checkpoint.interval-seconds:300}") long intervalSeconds) {
+        this.expenseRepository = expenseRepository;
+        this.netBalanceAggregator = netBalanceAggregator;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.strategy = strategy;
+        this.path = path.isBlank() ? null : Path.of(path);
+
+        if (this.path != null && intervalSeconds > 0) {
+            this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "balance-checkpoint");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleWithFixedDelay(this::checkpoint, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+        } else {
+            this.scheduler = null;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Computes every balance from expenses into this thread's calculator, starting from
+     * the checkpoint when there is a valid one. Must run inside a transaction.
+     */
+    public Replay replay() {
+        Optional<Checkpoint> checkpoint = load();
+        Long checkpointExpenseId = checkpoint.map(Checkpoint::highestExpenseId).orElse(null);
+        Scan scan = strategy == Strategy.SQL
+                ? sumInDatabase(checkpointExpenseId != null ? checkpointExpenseId : 0L)
+                : sumLoadedExpenses(checkpointExpenseId);
+
+        NetBalanceCalculator calculator = scan.calculator();
+        checkpoint.ifPresent(c -> c.addTo(calculator));
+
+        // What a checkpoint of this result would cover
+        long highestExpenseId = checkpoint.map(Checkpoint::highestExpenseId).orElse(0L);
+        LocalDateTime highestCreatedAt = checkpoint.map(Checkpoint::highestCreatedAt).orElse(null);
+        if (scan.highestExpenseId() > highestExpenseId) {
+            highestExpenseId = scan.highestExpenseId();
+            highestCreatedAt = scan.highestCreatedAt();
+        }
+        long expenseCount = checkpoint.map(Checkpoint::expenseCount).orElse(0L) + scan.expenses();
+
+        return new Replay(calculator, scan.expenses(), checkpointExpenseId,
+                highestExpenseId, expenseCount, highestCreatedAt);
+    }
+
+    /**
+     * Sums expenses after the given id with aggregate queries; only the sums per user
+     * and group cross the wire.
+     */
+    private Scan sumInDatabase(long afterExpenseId) {
+        NetBalanceCalculator calculator = NetBalanceCalculator.forCurrentThread();
+        long expenses = 0;
+        long splits = 0;
+        long highestExpenseId = 0;
+        for (Object[] row : expenseRepository.sumBalancesByIdGreaterThan(afterExpenseId)) {
+            boolean paid = ((Number) row[0]).intValue() == 1;
+            long cents = Money.toCents((BigDecimal) row[3]);
+            calculator.addSum((Long) row[2], (Long) row[1], paid ? cents : Money.negate(cents));
+            if (paid) {
+                expenses += (Long) row[4];
+                highestExpenseId = Math.max(highestExpenseId, (Long) row[5]);
+            } else {
+                splits += (Long) row[4];
+            }
+        }
+        calculator.addScanned(expenses, splits);
+
+        LocalDateTime highestCreatedAt = highestExpenseId > 0
+                ? expenseRepository.findCreatedAtById(highestExpenseId).orElseThrow()
+                : null;
+        return new Scan(calculator, Math.toIntExact(expenses), highestExpenseId, highestCreatedAt);
+    }
+
+    /**
+     * Loads expenses after the given id, or every expense when it is null, and sums them.
+     */
+    private Scan sumLoadedExpenses(Long afterExpenseId) {
+        List<Expense> expenses = afterExpenseId != null
+                ? expenseRepository.findAllWithDetailsByIdGreaterThan(afterExpenseId)
+                : expenseRepository.findAllWithDetails();
+        NetBalanceCalculator calculator = netBalanceAggregator.aggregate(expenses);
+
+        Expense highest = null;
+        for (Expense expense : expenses) {
+            if (highest == null || expense.getId() > highest.getId()) {
+                highest = expense;
+            }
+        }
+        return highest == null
+                ? new Scan(calculator, 0, 0, null)
+                : new Scan(calculator, expenses.size(), highest.getId(), highest.getCreatedAt());
+    }
+
+    /**
+     * Writes the replayed balances as the new checkpoint. Does nothing when disabled or
+     * when there are no expenses yet. Must be called on the thread that ran the replay.
+     */
+    public void save(Replay replay) {
+        if (path == null || replay.highestCreatedAt() == null) {
+            return;
+        }
+        try {
+            write(replay);
+        } catch (IOException e) {
+            // The next rebuild simply replays more expenses
+            log.warn("Could not write balance checkpoint to {}", path, e);
+        }
+    }
+
+    private void checkpoint() {
+        try {
+            readOnlyTransaction.executeWithoutResult(status -> {
+                Replay replay = replay();
+                if (replay.checkpointExpenseId() == null || replay.expensesScanned() > 0) {
+                    save(replay);
+                }
+            });
+        } catch (RuntimeException e) {
+            log.warn("Scheduled balance checkpoint failed", e);
+        }
+    }
+
+    private synchronized void write(Replay replay) throws IOException {
+        NetBalanceCalculator calculator = replay.calculator();
+        int[] entries = {0};
+        calculator.overall().forEach((userId, cents) -> entries[0] += cents != 0 ? 1 : 0);
+        calculator.forEachGroup((groupId, balances) ->
+                balances.forEach((userId, cents) -> entries[0] += cents != 0 ? 1 : 0));
+
+        int size = HEADER_BYTES + entries[0] * ENTRY_BYTES + CHECKSUM_BYTES;
+        LocalDateTime createdAt = replay.highestCreatedAt().truncatedTo(ChronoUnit.MICROS);
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.putInt(MAGIC)
+                    .putInt(FORMAT_VERSION)
+                    .putLong(replay.highestExpenseId())
+                    .putLong(replay.expenseCount())
+                    .putLong(createdAt.toEpochSecond(ZoneOffset.UTC))
+                    .putInt(createdAt.getNano())
+                    .putInt(entries[0]);
+            calculator.overall().forEach((userId, cents) -> putEntry(buffer, userId, 0, cents));
+            calculator.forEachGroup((groupId, balances) ->
+                    balances.forEach((userId, cents) -> putEntry(buffer, userId, groupId, cents)));
+            buffer.putLong(checksum(buffer, size - CHECKSUM_BYTES));
+            buffer.force();
+        }
+
+        // Readers see either the old checkpoint or the new one, never a partial file
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log.info("Balance checkpoint written: {} expenses up to id {}, {} balances",
+                replay.expenseCount(), replay.highestExpenseId(), entries[0]);
+    }
+
+    private static void putEntry(ByteBuffer buffer, long userId, long groupId, long cents) {
+        if (cents != 0) {
+            buffer.putLong(userId).putLong(groupId).putLong(cents);
+        }
+    }
+
+    /**
+     * Reads the checkpoint and checks it still matches the expenses table.
+     */
+    private Optional<Checkpoint> load() {
+        if (path == null || !Files.exists(path)) {
+            return Optional.empty();
+        }
+
+        Checkpoint checkpoint;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES + CHECKSUM_BYTES) {
+                log.warn("Ignoring balance checkpoint {}: file is truncated", path);
+                return Optional.empty();
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            checkpoint = read(buffer, (int) size);
+        } catch (IOException e) {
+            log.warn("Could not read balance checkpoint {}", path, e);
+            return Optional.empty();
+        }
+        if (checkpoint == null) {
+            return Optional.empty();
+        }
+
+        long count = expenseRepository.countByIdLessThanEqual(checkpoint.highestExpenseId());
+        Optional<LocalDateTime> createdAt = expenseRepository.findCreatedAtById(checkpoint.highestExpenseId());
+        if (count != checkpoint.expenseCount() || createdAt.isEmpty()
+                || !createdAt.get().truncatedTo(ChronoUnit.MICROS).equals(checkpoint.highestCreatedAt())) {
+            log.info("Balance checkpoint up to expense {} no longer matches the expenses table, replaying all",
+                    checkpoint.highestExpenseId());
+            return Optional.empty();
+        }
+        return Optional.of(checkpoint);
+    }
+
+    private Checkpoint read(ByteBuffer buffer, int size) {
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT_VERSION) {
+            log.warn("Ignoring balance checkpoint {}: unknown format", path);
+            return null;
+        }
+        int entries = buffer.getInt(HEADER_BYTES - 4);
+        if (entries < 0 || size != HEADER_BYTES + (long) entries * ENTRY_BYTES + CHECKSUM_BYTES
+                || buffer.getLong(size - CHECKSUM_BYTES) != checksum(buffer, size - CHECKSUM_BYTES)) {
+            log.warn("Ignoring balance checkpoint {}: file is damaged", path);
+            return null;
+        }
+
+        buffer.position(8);
+        long highestExpenseId = buffer.getLong();
+        long expenseCount = buffer.getLong();
+        LocalDateTime createdAt = LocalDateTime.ofEpochSecond(buffer.getLong(), buffer.getInt(), ZoneOffset.UTC);
+        buffer.getInt();
+        long[] values = new long[entries * 3];
+        buffer.asLongBuffer().get(values);
+        return new Checkpoint(highestExpenseId, expenseCount, createdAt, values);
+    }
+
+    private static long checksum(ByteBuffer buffer, int length) {
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.duplicate().position(0).limit(length));
+        return crc.getValue();
+    }
+
+    /**
+     * Balances computed from every expense up to and including highestExpenseId.
+     *
+     * @param entries user id, group id (0 for overall) and cents, three longs per balance
+     */
+    private record Checkpoint(long highestExpenseId, long expenseCount, LocalDateTime highestCreatedAt,
+                              long[] entries) {
+
+        void addTo(NetBalanceCalculator calculator) {
+            for (int i = 0; i < entries.length; i += 3) {
+                calculator.addBalance(entries[i + 1] == 0 ? null : entries[i + 1], entries[i], entries[i + 2]);
+            }
+        }
+    }
+
+    /**
+     * How expenses after the checkpoint are summed.
+     */
+    public enum Strategy {
+        /** Aggregate queries sum amounts per user and group in the database. */
+        SQL,
+        /** Expenses are loaded with their splits and summed in memory. */
+        REPLAY
+    }
+
+    /**
+     * Balances of the expenses read after the checkpoint, before the checkpoint is added.
+     */
+    private record Scan(NetBalanceCalculator calculator, int expenses, long highestExpenseId,
+                        LocalDateTime highestCreatedAt) {
+    }
+
+    /**
+     * Balances recomputed from expenses.
+     *
+     * @param expensesScanned     expenses read from the database, excluding those covered by the checkpoint
+     * @param checkpointExpenseId highest expense id of the checkpoint used, or null if every expense was read
+     * @param highestExpenseId    highest expense id the balances now cover
+     * @param expenseCount        expenses the balances now cover
+     */
+    public record Replay(NetBalanceCalculator calculator, int expensesScanned, Long checkpointExpenseId,
+                         long highestExpenseId, long expenseCount, LocalDateTime highestCreatedAt) {
+    }
+}
@@ -0,0 +1,189 @@
+package com.splitwise.service;
+
+import com.splitwise.dto.response.LedgerRebuildResponse;
+import com.splitwise.entity.Expense;
+import com.splitwise.entity.LedgerEntry;
+import com.splitwise.event.ExpenseCreatedEvent;
+import com.splitwise.event.LedgerRebuiltEvent;
+import com.splitwise.jfr.NetBalanceEvent;
+import com.splitwise.metrics.DomainMetrics;
+import com.splitwise.repository.LedgerEntryRepository;
+import com.splitwise.util.Money;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Keeps the balance ledger in step with the expenses table.
+ *
+ * Every expense moves money between its payer and its participants, so instead of
+ * replaying the whole expense history on each balance read we apply each expense's
+ * deltas to the ledger once, in the same transaction that saves the expense.
+ */
+@Service
+public class BalanceLedgerService {
+
+    private final LedgerEntryRepository ledgerEntryRepository;
+    private final BalanceCheckpointService balanceCheckpointService;
+    private final DomainMetrics domainMetrics;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public BalanceLedgerService(LedgerEntryRepository ledgerEntryRepository,
+                                BalanceCheckpointService balanceCheckpointService,
+                                DomainMetrics domainMetrics,
+                                ApplicationEventPublisher eventPublisher) {
+        this.ledgerEntryRepository = ledgerEntryRepository;
+        this.balanceCheckpointService = balanceCheckpointService;
+        this.domainMetrics = domainMetrics;
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * Applies the balance deltas of a set of expenses to the ledger.
+     * Deltas are summed per ledger row first, so a batch of expenses costs one update
+     * per affected row rather than one per expense and participant.
+     * Must run inside the transaction that persists the expenses; publishes an
+     * {@link ExpenseCreatedEvent} for the users whose balances changed.
+     */
+    @Transactional
+    public void applyExpenses(Collection<Expense> expenses) {
+        NetBalanceEvent event = new NetBalanceEvent();
+        event.begin();
+        NetBalanceCalculator calculator = NetBalanceCalculator.forCurrentThread().addAll(expenses);
+        domainMetrics.recordExpensesApplied(expenses.size());
+
+        // Sorted so concurrent writers always lock ledger rows in the same order
+        Map<LedgerKey, Long> deltas = new TreeMap<>(LEDGER_KEY_ORDER);
+        collect(calculator, deltas);
+
+        LocalDateTime now = LocalDateTime.now();
+        for (Map.Entry<LedgerKey, Long> delta : deltas.entrySet()) {
+            LedgerKey key = delta.getKey();
+            BigDecimal amount = Money.toBigDecimal(delta.getValue());
+            // A row missing on update may be created by a concurrent first expense; whichever
+            // insert loses waits for the winner to commit and then updates its row
+            if (addToEntry(key, amount, now) == 0
+                    && !ledgerEntryRepository.insertIfAbsent(key.userId(), key.groupId(), amount, now)) {
+                addToEntry(key, amount, now);
+            }
+        }
+        commit(event, NetBalanceEvent.APPLY, calculator, deltas.size());
+
+        if (!expenses.isEmpty()) {
+            Set<Long> userIds = new HashSet<>();
+            calculator.overall().forEach((userId, cents) -> userIds.add(userId));
+            Set<Long> groupIds = new HashSet<>();
+            calculator.forEachGroup((groupId, balances) -> groupIds.add(groupId));
+            eventPublisher.publishEvent(new ExpenseCreatedEvent(expenses.size(), userIds, groupIds));
+        }
+    }
+
+    /**
+     * Recomputes every ledger row from the expenses and splits tables, corrects any
+     * row that disagrees and reports the differences found. Starts from the balance
+     * checkpoint when there is a valid one, and writes a new checkpoint afterwards.
+     */
+    @Transactional
+    public LedgerRebuildResponse rebuild() {
+        NetBalanceEvent event = new NetBalanceEvent();
+        event.begin();
+
+        // Lock the ledger first so expense writers wait for the rebuild to commit
+        List<LedgerEntry> entries = ledgerEntryRepository.lockAll();
+        BalanceCheckpointService.Replay replay = balanceCheckpointService.replay();
+        NetBalanceCalculator calculator = replay.calculator();
+        domainMetrics.recordExpensesRebuilt(replay.expensesScanned());
+        Map<LedgerKey, Long> actualBalances = new HashMap<>();
+        collect(calculator, actualBalances);
+        balanceCheckpointService.save(replay);
+
+        Map<LedgerKey, LedgerEntry> entriesByKey = new HashMap<>();
+        for (LedgerEntry entry : entries) {
+            Long groupId = entry.getGroup() != null ? entry.getGroup().getId() : null;
+            entriesByKey.put(new LedgerKey(entry.getUser().getId(), groupId), entry);
+        }
+
+        Set<LedgerKey> keys = new HashSet<>(entriesByKey.keySet());
+        keys.addAll(actualBalances.keySet());
+
+        List<LedgerRebuildResponse.Drift> drifts = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (LedgerKey key : keys) {
+            LedgerEntry entry = entriesByKey.get(key);
+            long ledgerBalance = entry != null ? Money.toCents(entry.getBalance()) : 0;
+            long actualBalance = actualBalances.getOrDefault(key, 0L);
+
+            if (ledgerBalance != actualBalance) {
+                drifts.add(new LedgerRebuildResponse.Drift(key.userId(), key.groupId(),
+                        Money.toBigDecimal(ledgerBalance), Money.toBigDecimal(actualBalance)));
+                if (entry != null) {
+                    entry.setBalance(Money.toBigDecimal(actualBalance));
+                } else {
+                    createEntry(key, Money.toBigDecimal(actualBalance), now);
+                }
+            }
+        }
+
+        drifts.sort(Comparator.comparing(LedgerRebuildResponse.Drift::getUserId)
+                .thenComparing(LedgerRebuildResponse.Drift::getGroupId,
+                        Comparator.nullsFirst(Comparator.naturalOrder())));
+
+        commit(event, NetBalanceEvent.REBUILD, calculator, keys.size());
+        eventPublisher.publishEvent(new LedgerRebuiltEvent(drifts.size()));
+        return new LedgerRebuildResponse(replay.expensesScanned(), replay.checkpointExpenseId(), keys.size(),
+                drifts, LocalDateTime.now());
+    }
+
+    /**
+     * Copies the calculator's balances into ledger keys, one per ledger row.
+     */
+    private void collect(NetBalanceCalculator calculator, Map<LedgerKey, Long> balances) {
+        calculator.overall().forEach((userId, cents) -> balances.put(new LedgerKey(userId, null), cents));
+        calculator.forEachGroup((groupId, groupBalances) -> groupBalances.forEach(
+                (userId, cents) -> balances.put(new LedgerKey(userId, groupId), cents)));
+    }
+
+    private static void commit(NetBalanceEvent event, String operation, NetBalanceCalculator calculator,
+                               int ledgerRows) {
+        if (event.shouldCommit()) {
+            event.operation = operation;
+            event.expensesScanned = calculator.expenseCount();
+            event.splitsScanned = calculator.splitCount();
+            event.ledgerRows = ledgerRows;
+            event.commit();
+        }
+    }
+
+    private int addToEntry(LedgerKey key, BigDecimal amount, LocalDateTime now) {
+        return key.groupId() == null
+                ? ledgerEntryRepository.addToUserTotal(key.userId(), amount, now)
+                : ledgerEntryRepository.addToGroupBalance(key.userId(), key.groupId(), amount, now);
+    }
+
+    /**
+     * Creates a row the rebuild found missing with the same insert as applyExpenses: lockAll
+     * cannot lock a row that does not exist yet, so a writer may create it meanwhile, and a
+     * duplicate saved through JPA would fail the whole rebuild. The rebuilt balance is then
+     * set on the writer's row instead.
+     */
+    private void createEntry(LedgerKey key, BigDecimal balance, LocalDateTime now) {
+        if (ledgerEntryRepository.insertIfAbsent(key.userId(), key.groupId(), balance, now)) {
+            return;
+        }
+        for (LedgerEntry entry : ledgerEntryRepository.findByUserIds(List.of(key.userId()))) {
+            Long groupId = entry.getGroup() != null ? entry.getGroup().getId() : null;
+            if (Objects.equals(groupId, key.groupId())) {
+                entry.setBalance(balance);
+            }
+        }
+    }
+
+    private static final Comparator<LedgerKey> LEDGER_KEY_ORDER = Comparator
+            .comparing(LedgerKey::userId)
+            .thenComparing(LedgerKey::groupId, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    private record LedgerKey(Long userId, Long groupId) {}
+}
@@ -1,191 +1,171 @@
 package com.splitwise.service;
 
 import com.splitwise.dto.response.BalanceResponse;
-import com.splitwise.entity.Expense;
-import com.splitwise.entity.Split;
-import com.splitwise.entity.User;
-import com.splitwise.repository.ExpenseRepository;
+import com.splitwise.enums.SettlementMode;
+import com.splitwise.service.BalanceSnapshotService.BalanceSnapshot;
+import com.splitwise.service.BalanceSnapshotService.BalanceView;
+import com.splitwise.service.SettlementSolver.Transfer;
+import com.splitwise.service.UserDirectory.UserSummary;
+import com.splitwise.util.Money;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
-import java.math.BigDecimal;
-import java.util.*;
-import java.util.stream.Collectors;
-
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Answers balance queries from the latest balance snapshot; see {@link BalanceSnapshotService}
+ * for how snapshots follow the ledger.
+ */
 @Service
 public class BalanceService {
 
-    private final ExpenseRepository expenseRepository;
-    private final UserService userService;
-
-    public BalanceService(ExpenseRepository expenseRepository, UserService userService) {
-        this.expenseRepository = expenseRepository;
-        this.userService = userService;
-    }
-
-    @Transactional(readOnly = true)
-    public BalanceResponse getUserBalance(Long userId) {
-        User user = userService.findUserById(userId);
-        List<Expense> expenses = expenseRepository.findByUserId(userId);
+    /** Bytes of the transfer digest kept in a per-request settlement's ETag. */
+    private static final int DIGEST_BYTES = 12;
 
-        // Calculate net balances between all users
-        Map<Long, BigDecimal> netBalances = calculateNetBalances(expenses);
+    private final BalanceSnapshotService balanceSnapshotService;
+    private final UserDirectory userDirectory;
+    private final ChangeVersions changeVersions;
 
-        // Simplify transactions
-        List<BalanceResponse.Transaction> transactions = simplifyDebts(netBalances);
+    public BalanceService(BalanceSnapshotService balanceSnapshotService, UserDirectory userDirectory,
+                          ChangeVersions changeVersions) {
+        this.balanceSnapshotService = balanceSnapshotService;
+        this.userDirectory = userDirectory;
+        this.changeVersions = changeVersions;
+    }
 
-        // Filter transactions involving this user
-        List<BalanceResponse.Transaction> userTransactions = transactions.stream()
-                .filter(t -> t.getFromUserId().equals(userId) || t.getToUserId().equals(userId))
-                .collect(Collectors.toList());
+    /**
+     * ETag of what {@link #getUserBalance} would return now, found without settling;
+     * null for modes that are settled per request, whose tag is known only afterwards.
+     */
+    public String getUserBalanceETag(Long userId, String mode) {
+        return snapshotETag(balanceSnapshotService.current(), resolveMode(mode), userId);
+    }
 
-        BigDecimal userNetBalance = netBalances.getOrDefault(userId, BigDecimal.ZERO);
+    /**
+     * ETag of what {@link #getAllBalances} would return now, found without settling;
+     * null for modes that are settled per request, whose tag is known only afterwards.
+     */
+    public String getAllBalancesETag(String mode) {
+        return snapshotETag(balanceSnapshotService.current(), resolveMode(mode), null);
+    }
 
-        return new BalanceResponse(
-                user.getId(),
-                user.getName(),
-                userNetBalance,
-                userTransactions
-        );
+    public SettledBalances<BalanceResponse> getUserBalance(Long userId, String mode) {
+        SettlementMode settlementMode = resolveMode(mode);
+        long stalenessMillis = balanceSnapshotService.stalenessMillis();
+        BalanceSnapshot snapshot = balanceSnapshotService.current();
+        BalanceView view = balanceSnapshotService.view(snapshot, settlementMode);
+
+        BalanceResponse balance = view.balancesByUser().get(userId);
+        if (balance == null) {
+            // Not part of any expense yet; resolving also checks the user exists
+            UserSummary user = userDirectory.resolve(Set.of(userId)).get(userId);
+            balance = new BalanceResponse(user.getId(), user.getName(), Money.toBigDecimal(0),
+                    Collections.emptyList());
+        }
+        return new SettledBalances<>(balance, view, snapshot, stalenessMillis, etag(snapshot, view, userId));
     }
 
     /**
      * Gets all balances across the system.
+     * mode selects the settlement algorithm; null uses splitwise.settlement.default-mode.
      */
-    @Transactional(readOnly = true)
-    public List<BalanceResponse> getAllBalances() {
-        List<Expense> expenses = expenseRepository.findAll();
-        Map<Long, BigDecimal> netBalances = calculateNetBalances(expenses);
-        List<BalanceResponse.Transaction> transactions = simplifyDebts(netBalances);
-
-        // Group transactions by user
-        Map<Long, List<BalanceResponse.Transaction>> transactionsByUser = new HashMap<>();
-        for (BalanceResponse.Transaction transaction : transactions) {
-            transactionsByUser.computeIfAbsent(transaction.getFromUserId(), k -> new ArrayList<>())
-                    .add(transaction);
-            transactionsByUser.computeIfAbsent(transaction.getToUserId(), k -> new ArrayList<>())
-                    .add(transaction);
-        }
-
-        return netBalances.entrySet().stream()
-                .map(entry -> {
-                    User user = userService.findUserById(entry.getKey());
-                    List<BalanceResponse.Transaction> userTransactions =
-                            transactionsByUser.getOrDefault(entry.getKey(), Collections.emptyList());
-
-                    return new BalanceResponse(
-                            user.getId(),
-                            user.getName(),
-                            entry.getValue(),
-                            userTransactions
-                    );
-                })
-                .collect(Collectors.toList());
+    public SettledBalances<List<BalanceResponse>> getAllBalances(String mode) {
+        SettlementMode settlementMode = resolveMode(mode);
+        long stalenessMillis = balanceSnapshotService.stalenessMillis();
+        BalanceSnapshot snapshot = balanceSnapshotService.current();
+        BalanceView view = balanceSnapshotService.view(snapshot, settlementMode);
+        return new SettledBalances<>(view.balances(), view, snapshot, stalenessMillis, etag(snapshot, view, null));
     }
 
     /**
-     * Calculates net balance for each user.
-     * Positive balance = others owe you
-     * Negative balance = you owe others
+     * Balances in the default mode are versioned per user and only change tag when their
+     * content does. userId is null for all balances.
      */
-    private Map<Long, BigDecimal> calculateNetBalances(List<Expense> expenses) {
-        Map<Long, BigDecimal> netBalances = new HashMap<>();
-
-        for (Expense expense : expenses) {
-            Long payerId = expense.getPaidBy().getId();
-
-            // Payer gets credited the full amount
-            netBalances.merge(payerId, expense.getAmount(), BigDecimal::add);
-
-            // Each participant gets debited their share
-            for (Split split : expense.getSplits()) {
-                Long participantId = split.getUser().getId();
-                netBalances.merge(participantId, split.getAmount().negate(), BigDecimal::add);
-            }
+    private String snapshotETag(BalanceSnapshot snapshot, SettlementMode mode, Long userId) {
+        if (mode != snapshot.defaultView().mode()) {
+            return null;
         }
-
-        return netBalances;
+        long version = userId == null ? snapshot.balancesVersion() : snapshot.userVersions().getOrDefault(userId, 0L);
+        return changeVersions.etag(scope(mode, userId), version);
     }
 
     /**
-     * Simplifies debts to minimize number of transactions.
-     * Uses greedy algorithm: Match largest debtor with largest creditor.
-     *
-     * Algorithm Explanation:
-     * 1. Separate users into debtors (owe money) and creditors (are owed money)
-     * 2. Sort both lists by amount
-     * 3. Match largest debtor with largest creditor
-     * 4. Create transaction for minimum of the two amounts
-     * 5. Update balances and repeat until all debts settled
-     *
-     * Time Complexity: O(n log n) where n is number of users
-     * This algorithm minimizes transactions to at most (n-1) transactions.
+     * Other modes are settled per request, and OPTIMAL falls back to greedy when it runs out
+     * of time, so one snapshot can settle differently from one request to the next. Their
+     * tag covers the snapshot and the transfers actually returned.
      */
-    private List<BalanceResponse.Transaction> simplifyDebts(Map<Long, BigDecimal> netBalances) {
-        List<BalanceResponse.Transaction> transactions = new ArrayList<>();
-
-        // Separate debtors and creditors
-        List<UserBalance> debtors = new ArrayList<>();
-        List<UserBalance> creditors = new ArrayList<>();
-
-        for (Map.Entry<Long, BigDecimal> entry : netBalances.entrySet()) {
-            if (entry.getValue().compareTo(BigDecimal.ZERO) < 0) {
-                // Negative balance = owes money
-                User user = userService.findUserById(entry.getKey());
-                debtors.add(new UserBalance(user, entry.getValue().negate()));
-            } else if (entry.getValue().compareTo(BigDecimal.ZERO) > 0) {
-                // Positive balance = is owed money
-                User user = userService.findUserById(entry.getKey());
-                creditors.add(new UserBalance(user, entry.getValue()));
-            }
+    private String etag(BalanceSnapshot snapshot, BalanceView view, Long userId) {
+        String etag = snapshotETag(snapshot, view.mode(), userId);
+        if (etag != null) {
+            return etag;
         }
+        List<Transfer> transfers = view.settlement().transfers();
+        if (userId != null) {
+            transfers = transfers.stream()
+                    .filter(transfer -> transfer.fromUserId() == userId || transfer.toUserId() == userId)
+                    .toList();
+        }
+        return changeVersions.etag(scope(view.mode(), userId) + "d" + digest(transfers), snapshot.version());
+    }
 
-        // Sort in descending order
-        debtors.sort((a, b) -> b.balance.compareTo(a.balance));
-        creditors.sort((a, b) -> b.balance.compareTo(a.balance));
-
-        // Greedy matching: largest debtor with largest creditor
-        int i = 0, j = 0;
-        while (i < debtors.size() && j < creditors.size()) {
-            UserBalance debtor = debtors.get(i);
-            UserBalance creditor = creditors.get(j);
-
-            // Transaction amount is minimum of debt and credit
-            BigDecimal transactionAmount = debtor.balance.min(creditor.balance);
-
-            transactions.add(new BalanceResponse.Transaction(
-                    debtor.user.getId(),
-                    debtor.user.getName(),
-                    creditor.user.getId(),
-                    creditor.user.getName(),
-                    transactionAmount
-            ));
-
-            // Update balances
-            debtor.balance = debtor.balance.subtract(transactionAmount);
-            creditor.balance = creditor.balance.subtract(transactionAmount);
-
-            // Move to next if balance is settled
-            if (debtor.balance.compareTo(BigDecimal.ZERO) == 0) {
-                i++;
-            }
-            if (creditor.balance.compareTo(BigDecimal.ZERO) == 0) {
-                j++;
-            }
+    /**
+     * Leading 96 bits of a SHA-256 over the transfers, in hex. Two settlements of one
+     * snapshot must not share a tag, which a 32-bit hash cannot promise.
+     */
+    private static String digest(List<Transfer> transfers) {
+        ByteBuffer bytes = ByteBuffer.allocate(transfers.size() * 3 * Long.BYTES);
+        for (Transfer transfer : transfers) {
+            bytes.putLong(transfer.fromUserId()).putLong(transfer.toUserId()).putLong(transfer.amount());
+        }
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(bytes.array());
+            return HexFormat.of().formatHex(hash, 0, DIGEST_BYTES);
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to provide SHA-256
+            throw new IllegalStateException(e);
         }
+    }
 
-        return transactions;
+    private static String scope(SettlementMode mode, Long userId) {
+        return "b" + mode.name().toLowerCase() + (userId == null ? "" : "u" + userId);
+    }
+
+    private SettlementMode resolveMode(String mode) {
+        return mode == null || mode.isBlank()
+                ? balanceSnapshotService.getDefaultMode()
+                : SettlementMode.parse(mode);
     }
 
     /**
-     * Helper class for debt simplification algorithm.
+     * Balances together with how their transactions were computed and how fresh they are.
      */
-    private static class UserBalance {
-        User user;
-        BigDecimal balance;
-
-        UserBalance(User user, BigDecimal balance) {
-            this.user = user;
-            this.balance = balance;
+    public static class SettledBalances<T> {
+        private final T balances;
+        private final SettlementSolver.Algorithm algorithm;
+        private final long durationMicros;
+        private final long snapshotVersion;
+        private final long stalenessMillis;
+        private final String etag;
+
+        public SettledBalances(T balances, BalanceView view, BalanceSnapshot snapshot, long stalenessMillis,
+                               String etag) {
+            this.balances = balances;
+            this.algorithm = view.settlement().algorithm();
+            this.durationMicros = view.settlement().durationMicros();
+            this.snapshotVersion = snapshot.version();
+            this.stalenessMillis = stalenessMillis;
+            this.etag = etag;
         }
+
+        public T getBalances() { return balances; }
+        public SettlementSolver.Algorithm getAlgorithm() { return algorithm; }
+        public long getDurationMicros() { return durationMicros; }
+        public long getSnapshotVersion() { return snapshotVersion; }
+        public long getStalenessMillis() { return stalenessMillis; }
+        public String getETag() { return etag; }
     }
 }
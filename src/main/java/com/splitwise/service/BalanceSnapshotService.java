@@ -0,0 +1,375 @@
+package com.splitwise.service;
+
+import com.splitwise.dto.response.BalanceResponse;
+import com.splitwise.entity.LedgerEntry;
+import com.splitwise.enums.SettlementMode;
+import com.splitwise.event.ExpenseCreatedEvent;
+import com.splitwise.event.LedgerRebuiltEvent;
+import com.splitwise.jfr.NetBalanceEvent;
+import com.splitwise.metrics.DomainMetrics;
+import com.splitwise.repository.LedgerEntryRepository;
+import com.splitwise.service.SettlementSolver.GroupBalance;
+import com.splitwise.service.SettlementSolver.Settlement;
+import com.splitwise.service.SettlementSolver.Transfer;
+import com.splitwise.service.UserDirectory.UserSummary;
+import com.splitwise.util.LongLongHashMap;
+import com.splitwise.util.Money;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Serves balances from an immutable snapshot so balance reads do no database work
+ * and no settlement in the request thread.
+ *
+ * Once a transaction that created expenses commits, the users it touched are marked
+ * dirty and a single background thread reloads just their ledger rows, then settles
+ * the result into a new snapshot. Changes that arrive while a refresh is running are
+ * picked up by the next one, so bursts of writes cost one refresh rather than one
+ * per expense. A ledger rebuild triggers a full reload.
+ */
+@Service
+public class BalanceSnapshotService {
+
+    private static final Logger log = LoggerFactory.getLogger(BalanceSnapshotService.class);
+
+    private final LedgerEntryRepository ledgerEntryRepository;
+    private final UserDirectory userDirectory;
+    private final SettlementSolver settlementSolver;
+    private final DomainMetrics domainMetrics;
+    private final TransactionTemplate readOnlyTransaction;
+    private final SettlementMode defaultMode;
+    private final ExecutorService executor;
+
+    private final AtomicReference<BalanceSnapshot> current = new AtomicReference<>();
+    private final Object refreshLock = new Object();
+    private final Set<Long> dirtyUsers = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean fullRefreshPending = new AtomicBoolean();
+    private final AtomicBoolean refreshScheduled = new AtomicBoolean();
+
+    /** System.nanoTime of the oldest committed change not yet in a snapshot; 0 if none. */
+    private final AtomicLong pendingSince = new AtomicLong();
+    /** Like pendingSince, for the changes the running refresh is applying. */
+    private volatile long inFlightSince;
+
+    public BalanceSnapshotService(LedgerEntryRepository ledgerEntryRepository,
+                                  UserDirectory userDirectory,
+                                  SettlementSolver settlementSolver,
+                                  DomainMetrics domainMetrics,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${splitwise.settlement.default-mode:GREEDY}") String defaultMode) {
+        this.ledgerEntryRepository = ledgerEntryRepository;
+        this.userDirectory = userDirectory;
+        this.settlementSolver = settlementSolver;
+        this.domainMetrics = domainMetrics;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.defaultMode = SettlementMode.parse(defaultMode);
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "balance-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public SettlementMode getDefaultMode() {
+        return defaultMode;
+    }
+
+    /**
+     * The latest snapshot. Only the first call after startup, if it comes before the
+     * background load has finished, reads the ledger on the calling thread.
+     */
+    public BalanceSnapshot current() {
+        BalanceSnapshot snapshot = current.get();
+        if (snapshot != null) {
+            return snapshot;
+        }
+        synchronized (refreshLock) {
+            snapshot = current.get();
+            if (snapshot == null) {
+                snapshot = readOnlyTransaction.execute(status -> loadFull(null, 1));
+                current.set(snapshot);
+            }
+            return snapshot;
+        }
+    }
+
+    /**
+     * Upper bound, in milliseconds, on how far the current snapshot lags behind
+     * committed expenses; 0 when there is nothing left to apply.
+     */
+    public long stalenessMillis() {
+        long oldest = oldest(pendingSince.get(), inFlightSince);
+        return oldest == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - oldest);
+    }
+
+    /**
+     * The snapshot's balances settled with the given mode. The default mode is settled
+     * when the snapshot is built; any other mode is settled now, from the snapshot.
+     */
+    public BalanceView view(BalanceSnapshot snapshot, SettlementMode mode) {
+        if (mode == snapshot.defaultView().mode()) {
+            return snapshot.defaultView();
+        }
+        return settle(snapshot.netBalances(), snapshot.groupBalances(), snapshot.users(), mode);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        fullRefreshPending.set(true);
+        scheduleRefresh();
+    }
+
+    @TransactionalEventListener
+    public void onExpenseCreated(ExpenseCreatedEvent event) {
+        dirtyUsers.addAll(event.userIds());
+        pendingSince.compareAndSet(0, System.nanoTime());
+        scheduleRefresh();
+    }
+
+    @TransactionalEventListener
+    public void onLedgerRebuilt(LedgerRebuiltEvent event) {
+        fullRefreshPending.set(true);
+        pendingSince.compareAndSet(0, System.nanoTime());
+        scheduleRefresh();
+    }
+
+    private void scheduleRefresh() {
+        if (refreshScheduled.compareAndSet(false, true)) {
+            executor.execute(this::refresh);
+        }
+    }
+
+    private void refresh() {
+        // Cleared first: a change committed from here on schedules another refresh
+        refreshScheduled.set(false);
+        long since = pendingSince.getAndSet(0);
+        inFlightSince = since;
+        boolean full = fullRefreshPending.getAndSet(false);
+        Set<Long> users = new HashSet<>(dirtyUsers);
+        dirtyUsers.removeAll(users);
+
+        try {
+            synchronized (refreshLock) {
+                BalanceSnapshot previous = current.get();
+                long version = previous != null ? previous.version() + 1 : 1;
+                BalanceSnapshot next = readOnlyTransaction.execute(status -> full || previous == null
+                        ? loadFull(previous, version)
+                        : loadIncremental(previous, users, version));
+                current.set(next);
+            }
+        } catch (RuntimeException e) {
+            // Start from scratch next time rather than lose the changes
+            log.error("Balance snapshot refresh failed, will reload fully on the next change", e);
+            fullRefreshPending.set(true);
+            if (since != 0) {
+                pendingSince.accumulateAndGet(since, BalanceSnapshotService::oldest);
+            }
+        } finally {
+            inFlightSince = 0;
+        }
+    }
+
+    private BalanceSnapshot loadFull(BalanceSnapshot previous, long version) {
+        NetBalanceEvent event = new NetBalanceEvent();
+        event.begin();
+
+        List<LedgerEntry> totals = ledgerEntryRepository.findUserTotals();
+        List<LedgerEntry> groupRows = ledgerEntryRepository.findNonZeroGroupBalances();
+
+        LongLongHashMap netBalances = new LongLongHashMap(totals.size());
+        for (LedgerEntry entry : totals) {
+            netBalances.put(entry.getUser().getId(), Money.toCents(entry.getBalance()));
+        }
+        Map<Long, List<GroupBalance>> groupBalancesByUser = new HashMap<>();
+        for (LedgerEntry entry : groupRows) {
+            addGroupBalance(groupBalancesByUser, entry);
+        }
+
+        commit(event, totals.size() + groupRows.size());
+        return build(previous, version, netBalances, groupBalancesByUser, Map.of());
+    }
+
+    /**
+     * Copies the previous snapshot, replacing the ledger rows of the given users.
+     */
+    private BalanceSnapshot loadIncremental(BalanceSnapshot previous, Set<Long> userIds, long version) {
+        NetBalanceEvent event = new NetBalanceEvent();
+        event.begin();
+
+        List<LedgerEntry> rows = userIds.isEmpty() ? List.of() : ledgerEntryRepository.findByUserIds(userIds);
+
+        LongLongHashMap netBalances = new LongLongHashMap(previous.netBalances().size() + userIds.size());
+        netBalances.addAll(previous.netBalances());
+        Map<Long, List<GroupBalance>> groupBalancesByUser = new HashMap<>(previous.groupBalancesByUser());
+        groupBalancesByUser.keySet().removeAll(userIds);
+        for (LedgerEntry entry : rows) {
+            if (entry.getGroup() == null) {
+                netBalances.put(entry.getUser().getId(), Money.toCents(entry.getBalance()));
+            } else if (entry.getBalance().signum() != 0) {
+                addGroupBalance(groupBalancesByUser, entry);
+            }
+        }
+
+        commit(event, rows.size());
+        return build(previous, version, netBalances, groupBalancesByUser, previous.users());
+    }
+
+    private BalanceSnapshot build(BalanceSnapshot previous, long version, LongLongHashMap netBalances,
+                                  Map<Long, List<GroupBalance>> groupBalancesByUser,
+                                  Map<Long, UserSummary> knownUsers) {
+        List<GroupBalance> groupBalances = new ArrayList<>();
+        groupBalancesByUser.values().forEach(groupBalances::addAll);
+
+        // Users cannot be renamed, so names resolved for earlier snapshots stay valid
+        Map<Long, UserSummary> users = new HashMap<>(knownUsers);
+        Set<Long> unknown = new HashSet<>();
+        netBalances.forEach((userId, balance) -> {
+            if (!users.containsKey(userId)) {
+                unknown.add(userId);
+            }
+        });
+        if (!unknown.isEmpty()) {
+            users.putAll(userDirectory.resolve(unknown));
+        }
+
+        BalanceView defaultView = settle(netBalances, groupBalances, users, defaultMode);
+
+        // A user's response keeps its version until its content changes; settlement can
+        // change a user's transactions even when only other users' balances moved
+        Map<Long, Long> userVersions = new HashMap<>();
+        long balancesVersion = 0;
+        for (BalanceResponse balance : defaultView.balances()) {
+            Long userId = balance.getUserId();
+            long userVersion = previous != null && balance.equals(previous.defaultView().balancesByUser().get(userId))
+                    ? previous.userVersions().get(userId)
+                    : version;
+            userVersions.put(userId, userVersion);
+            balancesVersion = Math.max(balancesVersion, userVersion);
+        }
+
+        return new BalanceSnapshot(version, netBalances,
+                Collections.unmodifiableList(groupBalances), Collections.unmodifiableMap(groupBalancesByUser),
+                Collections.unmodifiableMap(users), defaultView, Collections.unmodifiableMap(userVersions),
+                balancesVersion);
+    }
+
+    /**
+     * Settles the balances and builds each user's response, ordered by user id.
+     */
+    private BalanceView settle(LongLongHashMap netBalances, List<GroupBalance> groupBalances,
+                               Map<Long, UserSummary> users, SettlementMode mode) {
+        Settlement settlement = settlementSolver.settle(netBalances,
+                mode == SettlementMode.GREEDY ? List.of() : groupBalances, mode);
+        domainMetrics.recordSettlement(settlement.algorithm().name(), settlement.debtors(),
+                settlement.creditors(), settlement.transfers().size());
+
+        // Group transactions by user
+        Map<Long, List<BalanceResponse.Transaction>> transactionsByUser = new HashMap<>();
+        for (Transfer transfer : settlement.transfers()) {
+            UserSummary from = users.get(transfer.fromUserId());
+            UserSummary to = users.get(transfer.toUserId());
+            BalanceResponse.Transaction transaction = new BalanceResponse.Transaction(
+                    from.getId(),
+                    from.getName(),
+                    to.getId(),
+                    to.getName(),
+                    Money.toBigDecimal(transfer.amount())
+            );
+            transactionsByUser.computeIfAbsent(transfer.fromUserId(), k -> new ArrayList<>()).add(transaction);
+            transactionsByUser.computeIfAbsent(transfer.toUserId(), k -> new ArrayList<>()).add(transaction);
+        }
+
+        Set<Long> userIds = new TreeSet<>();
+        netBalances.forEach((userId, balance) -> userIds.add(userId));
+        List<BalanceResponse> balances = new ArrayList<>(userIds.size());
+        Map<Long, BalanceResponse> balancesByUser = new HashMap<>();
+        for (Long userId : userIds) {
+            UserSummary user = users.get(userId);
+            BalanceResponse balance = new BalanceResponse(
+                    user.getId(),
+                    user.getName(),
+                    Money.toBigDecimal(netBalances.get(userId)),
+                    transactionsByUser.getOrDefault(userId, Collections.emptyList())
+            );
+            balances.add(balance);
+            balancesByUser.put(userId, balance);
+        }
+
+        return new BalanceView(mode, Collections.unmodifiableList(balances),
+                Collections.unmodifiableMap(balancesByUser), settlement);
+    }
+
+    private static void addGroupBalance(Map<Long, List<GroupBalance>> groupBalancesByUser, LedgerEntry entry) {
+        long userId = entry.getUser().getId();
+        groupBalancesByUser.computeIfAbsent(userId, k -> new ArrayList<>())
+                .add(new GroupBalance(userId, entry.getGroup().getId(), Money.toCents(entry.getBalance())));
+    }
+
+    private void commit(NetBalanceEvent event, int ledgerRows) {
+        domainMetrics.recordLedgerRowsRead(ledgerRows);
+        if (event.shouldCommit()) {
+            event.operation = NetBalanceEvent.READ;
+            event.ledgerRows = ledgerRows;
+            event.commit();
+        }
+    }
+
+    /**
+     * The earlier of two System.nanoTime stamps, where 0 means none.
+     */
+    private static long oldest(long a, long b) {
+        if (a == 0 || b == 0) {
+            return a == 0 ? b : a;
+        }
+        return a - b < 0 ? a : b;
+    }
+
+    /**
+     * Net balances as of one point in time. Nothing in a snapshot is modified after it
+     * is published, so any number of readers can share it.
+     *
+     * @param netBalances         overall balance in cents per user; must not be modified
+     * @param groupBalances       every non-zero balance within a group
+     * @param groupBalancesByUser the same group balances, keyed by user id
+     * @param users               names of every user in netBalances
+     * @param defaultView         the balances settled with splitwise.settlement.default-mode
+     * @param userVersions        per user, the snapshot version in which their default view
+     *                            response last changed
+     * @param balancesVersion     the snapshot version in which the default view last changed
+     */
+    public record BalanceSnapshot(long version, LongLongHashMap netBalances,
+                                  List<GroupBalance> groupBalances,
+                                  Map<Long, List<GroupBalance>> groupBalancesByUser,
+                                  Map<Long, UserSummary> users, BalanceView defaultView,
+                                  Map<Long, Long> userVersions, long balancesVersion) {
+    }
+
+    /**
+     * A snapshot's balances settled with one mode.
+     */
+    public record BalanceView(SettlementMode mode, List<BalanceResponse> balances,
+                              Map<Long, BalanceResponse> balancesByUser, Settlement settlement) {
+    }
+}
@@ -0,0 +1,57 @@
+package com.splitwise.service;
+
+import com.splitwise.event.ExpenseCreatedEvent;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Version counters for conditional GETs: one for all expenses, one per user and one
+ * per group. Each advances once a transaction that wrote expenses in its scope has
+ * committed, so a read that takes the version before loading data never pairs an
+ * old body with a new version.
+ *
+ * Counters live in memory and restart from zero, so every ETag also carries the
+ * time this instance started; tags handed out before a restart never match again.
+ */
+@Service
+public class ChangeVersions {
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong expenses = new AtomicLong();
+    private final Map<Long, AtomicLong> users = new ConcurrentHashMap<>();
+    private final Map<Long, AtomicLong> groups = new ConcurrentHashMap<>();
+
+    @TransactionalEventListener
+    public void onExpenseCreated(ExpenseCreatedEvent event) {
+        expenses.incrementAndGet();
+        event.userIds().forEach(userId -> users.computeIfAbsent(userId, id -> new AtomicLong()).incrementAndGet());
+        event.groupIds().forEach(groupId -> groups.computeIfAbsent(groupId, id -> new AtomicLong()).incrementAndGet());
+    }
+
+    public String expensesETag() {
+        return etag("e", expenses.get());
+    }
+
+    public String userExpensesETag(Long userId) {
+        return etag("u" + userId, version(users, userId));
+    }
+
+    public String groupExpensesETag(Long groupId) {
+        return etag("g" + groupId, version(groups, groupId));
+    }
+
+    /**
+     * A strong ETag for a scope at a version, unique to this instance's lifetime.
+     */
+    public String etag(String scope, long version) {
+        return "\"" + epoch + "-" + scope + "-" + version + "\"";
+    }
+
+    private static long version(Map<Long, AtomicLong> versions, Long id) {
+        AtomicLong version = versions.get(id);
+        return version != null ? version.get() : 0;
+    }
+}
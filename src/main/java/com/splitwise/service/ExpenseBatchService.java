@@ -0,0 +1,196 @@
+package com.splitwise.service;
+
+import com.splitwise.dto.request.CreateExpenseRequest;
+import com.splitwise.dto.response.BatchExpenseResponse;
+import com.splitwise.dto.response.BatchExpenseResponse.ItemResult;
+import com.splitwise.entity.Expense;
+import com.splitwise.entity.Group;
+import com.splitwise.entity.User;
+import com.splitwise.exception.InvalidExpenseException;
+import com.splitwise.exception.ResourceNotFoundException;
+import com.splitwise.metrics.DomainMetrics;
+import com.splitwise.repository.ExpenseRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Creates many expenses in one call, for backfills.
+ *
+ * Items are processed in chunks of splitwise.batch.chunk-size, one transaction per chunk.
+ * Within a chunk, users are loaded with a single query, inserts go out as JDBC batches and
+ * ledger updates are summed per row. An item that fails validation is reported and skipped
+ * without affecting the others; if a chunk fails to commit, every item in it is reported failed.
+ */
+@Service
+public class ExpenseBatchService {
+
+    private static final Logger log = LoggerFactory.getLogger(ExpenseBatchService.class);
+
+    /** Expenses persisted between flushes; matches hibernate.jdbc.batch_size. */
+    static final int FLUSH_INTERVAL = 50;
+
+    private final ExpenseService expenseService;
+    private final ExpenseRepository expenseRepository;
+    private final BalanceLedgerService balanceLedgerService;
+    private final UserDirectory userDirectory;
+    private final DomainMetrics domainMetrics;
+    private final EntityManager entityManager;
+    private final Validator validator;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    private final int maxItems;
+
+    public ExpenseBatchService(ExpenseService expenseService,
+                               ExpenseRepository expenseRepository,
+                               BalanceLedgerService balanceLedgerService,
+                               UserDirectory userDirectory,
+                               DomainMetrics domainMetrics,
+                               EntityManager entityManager,
+                               Validator validator,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${splitwise.batch.chunk-size:500}") int chunkSize,
+                               @Value("${splitwise.batch.max-items:50000}") int maxItems) {
+        this.expenseService = expenseService;
+        this.expenseRepository = expenseRepository;
+        this.balanceLedgerService = balanceLedgerService;
+        this.userDirectory = userDirectory;
+        this.domainMetrics = domainMetrics;
+        this.entityManager = entityManager;
+        this.validator = validator;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+        this.maxItems = maxItems;
+    }
+
+    public BatchExpenseResponse createExpenses(List<CreateExpenseRequest> requests) {
+        if (requests.size() > maxItems) {
+            throw new IllegalArgumentException(
+                    "A batch may contain at most " + maxItems + " expenses, got: " + requests.size());
+        }
+
+        long start = System.nanoTime();
+        List<ItemResult> results = new ArrayList<>(requests.size());
+        for (int from = 0; from < requests.size(); from += chunkSize) {
+            int to = Math.min(from + chunkSize, requests.size());
+            results.addAll(processChunk(requests.subList(from, to), from));
+        }
+        long elapsedNanos = System.nanoTime() - start;
+
+        int created = (int) results.stream()
+                .filter(result -> result.getStatus() == BatchExpenseResponse.Status.CREATED)
+                .count();
+        double perSecond = elapsedNanos == 0 ? 0.0 : created * 1_000_000_000.0 / elapsedNanos;
+
+        log.info("Batch created {} of {} expenses in {} ms ({} expenses/s)",
+                created, requests.size(), elapsedNanos / 1_000_000, String.format("%.1f", perSecond));
+
+        return new BatchExpenseResponse(
+                requests.size(),
+                created,
+                requests.size() - created,
+                elapsedNanos / 1_000_000,
+                perSecond,
+                results
+        );
+    }
+
+    private List<ItemResult> processChunk(List<CreateExpenseRequest> chunk, int offset) {
+        ItemResult[] results = new ItemResult[chunk.size()];
+
+        // Bean validation needs no database access, so do it before opening the transaction
+        for (int i = 0; i < chunk.size(); i++) {
+            String violations = validate(chunk.get(i));
+            if (violations != null) {
+                results[i] = ItemResult.failed(offset + i, violations);
+            }
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                Set<Long> userIds = new HashSet<>();
+                Set<Long> groupIds = new HashSet<>();
+                for (int i = 0; i < chunk.size(); i++) {
+                    if (results[i] == null) {
+                        userIds.addAll(ExpenseService.participantIds(chunk.get(i)));
+                        if (chunk.get(i).getGroupId() != null) {
+                            groupIds.add(chunk.get(i).getGroupId());
+                        }
+                    }
+                }
+                // Loaded up front so a missing user or group fails only its own item,
+                // without marking the chunk's transaction rollback-only
+                Map<Long, User> users = userDirectory.findUsers(userIds);
+                Map<Long, Group> groups = expenseService.findGroups(groupIds);
+
+                Map<Integer, Expense> expenses = new LinkedHashMap<>();
+                for (int i = 0; i < chunk.size(); i++) {
+                    if (results[i] != null) {
+                        continue;
+                    }
+                    try {
+                        expenses.put(i, expenseService.buildExpense(chunk.get(i), users, groups));
+                    } catch (InvalidExpenseException | ResourceNotFoundException e) {
+                        results[i] = ItemResult.failed(offset + i, e.getMessage());
+                    }
+                }
+
+                // Ledger first: its bulk updates trigger an auto-flush, which is cheap
+                // while the new expenses are not yet managed by the persistence context
+                balanceLedgerService.applyExpenses(expenses.values());
+
+                // Flushing every FLUSH_INTERVAL expenses keeps Hibernate's insert sorting cheap;
+                // it grows much faster than linearly with the number of pending inserts
+                int pending = 0;
+                for (Expense expense : expenses.values()) {
+                    expenseRepository.save(expense);
+                    if (++pending % FLUSH_INTERVAL == 0) {
+                        entityManager.flush();
+                    }
+                }
+                entityManager.flush();
+
+                expenses.forEach((i, expense) -> {
+                    results[i] = ItemResult.created(offset + i, expense.getId());
+                    domainMetrics.recordSplits(expense.getSplits().size());
+                });
+                entityManager.clear();
+            });
+        } catch (RuntimeException e) {
+            log.warn("Batch chunk starting at item {} rolled back", offset, e);
+            for (int i = 0; i < chunk.size(); i++) {
+                if (results[i] == null || results[i].getStatus() == BatchExpenseResponse.Status.CREATED) {
+                    results[i] = ItemResult.failed(offset + i, "Chunk rolled back: " + e.getMessage());
+                }
+            }
+        }
+
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Runs the request's bean validation constraints, returning a summary of the violations
+     * or null if there are none.
+     */
+    private String validate(CreateExpenseRequest request) {
+        if (request == null) {
+            return "Expense is required";
+        }
+        Set<ConstraintViolation<CreateExpenseRequest>> violations = validator.validate(request);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                .sorted()
+                .collect(Collectors.joining("; "));
+    }
+}
@@ -0,0 +1,52 @@
+package com.splitwise.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position in an expense listing: the (createdAt, id) of the last expense returned.
+ * Clients only ever see it as an opaque base64 token.
+ */
+final class ExpenseCursor {
+
+    private final LocalDateTime createdAt;
+    private final Long id;
+
+    private ExpenseCursor(LocalDateTime createdAt, Long id) {
+        this.createdAt = createdAt;
+        this.id = id;
+    }
+
+    static ExpenseCursor after(LocalDateTime createdAt, Long id) {
+        return new ExpenseCursor(createdAt, id);
+    }
+
+    /**
+     * Parses a token produced by {@link #encode()}, or returns null for the first page.
+     */
+    static ExpenseCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = value.indexOf('|');
+            return new ExpenseCursor(
+                    LocalDateTime.parse(value.substring(0, separator)),
+                    Long.parseLong(value.substring(separator + 1))
+            );
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + token);
+        }
+    }
+
+    String encode() {
+        String value = createdAt + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    LocalDateTime getCreatedAt() { return createdAt; }
+    Long getId() { return id; }
+}
@@ -0,0 +1,110 @@
+package com.splitwise.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.splitwise.dto.response.ExpenseResponse;
+import com.splitwise.dto.response.UserResponse;
+import com.splitwise.entity.Expense;
+import com.splitwise.entity.Split;
+import com.splitwise.entity.User;
+import com.splitwise.repository.SplitRepository;
+import jakarta.persistence.EntityManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Writes the full expense history as NDJSON, one expense per line.
+ *
+ * Rows are streamed from the database and written as they arrive, and the persistence
+ * context is cleared periodically, so memory use does not grow with the size of the history.
+ */
+@Service
+public class ExpenseExportService {
+
+    private static final byte[] NEWLINE = {'\n'};
+
+    /** Entities read between persistence context clears and output flushes. */
+    private static final int CLEAR_INTERVAL = 1000;
+
+    private final SplitRepository splitRepository;
+    private final EntityManager entityManager;
+    private final ObjectWriter writer;
+
+    public ExpenseExportService(SplitRepository splitRepository, EntityManager entityManager,
+                                ObjectMapper objectMapper) {
+        this.splitRepository = splitRepository;
+        this.entityManager = entityManager;
+        this.writer = objectMapper.writerFor(ExpenseResponse.class);
+    }
+
+    @Transactional(readOnly = true)
+    public void exportExpenses(OutputStream out) throws IOException {
+        try (Stream<Split> splits = splitRepository.streamAllWithExpense()) {
+            Iterator<Split> iterator = splits.iterator();
+
+            Expense current = null;
+            List<ExpenseResponse.SplitDetail> details = new ArrayList<>();
+            int rowsSinceClear = 0;
+
+            while (iterator.hasNext()) {
+                Split split = iterator.next();
+                Expense expense = split.getExpense();
+
+                // Splits arrive grouped by expense; a new id means the previous expense is complete
+                if (current != null && !current.getId().equals(expense.getId())) {
+                    writeLine(out, current, details);
+                    details = new ArrayList<>();
+                }
+                current = expense;
+                details.add(new ExpenseResponse.SplitDetail(
+                        split.getUser().getId(),
+                        split.getUser().getName(),
+                        split.getAmount(),
+                        split.getPercentage()
+                ));
+
+                if (++rowsSinceClear == CLEAR_INTERVAL) {
+                    // Everything needed from the entities read so far has been copied out
+                    entityManager.clear();
+                    out.flush();
+                    rowsSinceClear = 0;
+                }
+            }
+
+            if (current != null) {
+                writeLine(out, current, details);
+            }
+        }
+        out.flush();
+    }
+
+    private void writeLine(OutputStream out, Expense expense, List<ExpenseResponse.SplitDetail> splits)
+            throws IOException {
+        User paidBy = expense.getPaidBy();
+        ExpenseResponse response = new ExpenseResponse(
+                expense.getId(),
+                expense.getDescription(),
+                expense.getAmount(),
+                new UserResponse(
+                        paidBy.getId(),
+                        paidBy.getName(),
+                        paidBy.getEmail(),
+                        paidBy.getPhoneNumber(),
+                        paidBy.getCreatedAt()
+                ),
+                expense.getGroup() != null ? expense.getGroup().getId() : null,
+                expense.getGroup() != null ? expense.getGroup().getName() : null,
+                expense.getSplitType(),
+                splits,
+                expense.getCreatedAt()
+        );
+        out.write(writer.writeValueAsBytes(response));
+        out.write(NEWLINE);
+    }
+}
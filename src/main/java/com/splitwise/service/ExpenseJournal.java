@@ -0,0 +1,490 @@
+package com.splitwise.service;
+
+import com.splitwise.entity.Expense;
+import com.splitwise.entity.Split;
+import com.splitwise.enums.SplitType;
+import com.splitwise.metrics.DomainMetrics;
+import com.splitwise.util.Money;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only journal of accepted expenses, split into memory-mapped segment files.
+ *
+ * An append only copies the record into the current segment. A flusher thread then
+ * forces every segment written since its last pass to disk and completes the appends'
+ * futures, so concurrent writers share one fsync (group commit). Records are read back
+ * in sequence order by a {@link Reader}, which may only read records that are durable.
+ *
+ * Record layout: body length and CRC32C of the body, then sequence, created-at seconds
+ * and nanos, payer id, group id (0 for none), split type, amount in cents, description,
+ * and user id, cents and basis points (-1 for none) per split. Segments are zero-filled,
+ * so a length of 0 marks the end of the written part; NEXT_SEGMENT marks that the writer
+ * went on to the next segment. Only the last segment may end in a damaged record, the
+ * torn tail of a crash, with nothing intact after it; anywhere else it means acknowledged
+ * records are lost, and the journal refuses to open.
+ */
+class ExpenseJournal {
+
+    private static final Logger log = LoggerFactory.getLogger(ExpenseJournal.class);
+
+    private static final String SEGMENT_SUFFIX = ".journal";
+    private static final int NEXT_SEGMENT = -1;
+    /** Body length and CRC32C of the body. */
+    private static final int RECORD_HEADER_BYTES = 4 + 4;
+    /** sequence, seconds, nanos, payer, group, split type, amount, description length, split count */
+    private static final int BODY_FIXED_BYTES = 8 + 8 + 4 + 8 + 8 + 1 + 8 + 4 + 4;
+    /** user id, cents, basis points */
+    private static final int SHARE_BYTES = 8 + 8 + 4;
+    private static final SplitType[] SPLIT_TYPES = SplitType.values();
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final DomainMetrics domainMetrics;
+    private final Thread flusher;
+
+    // Writer state, guarded by this
+    private MappedByteBuffer writeBuffer;
+    private long writeSegment;
+    private long lastSequence;
+    private List<Pending> pending = new ArrayList<>();
+    private boolean closed;
+
+    private volatile long durableSequence;
+
+    /**
+     * Opens the journal, cutting off a torn record at the end of the last segment.
+     * New records are numbered after both the last record found and appliedSequence,
+     * the highest sequence already in the database.
+     *
+     * @throws IOException also when a record before the tail is damaged or out of sequence
+     */
+    ExpenseJournal(Path directory, int segmentBytes, long appliedSequence, DomainMetrics domainMetrics)
+            throws IOException {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.domainMetrics = domainMetrics;
+        Files.createDirectories(directory);
+
+        long found = 0;
+        List<Long> segments = segments();
+        for (int i = 0; i < segments.size(); i++) {
+            long segment = segments.get(i);
+            MappedByteBuffer buffer = map(segment);
+            Entry entry;
+            while ((entry = read(buffer, found)) != null) {
+                found = entry.sequence();
+            }
+
+            int position = buffer.position();
+            int next = buffer.remaining() >= 4 ? buffer.getInt(position) : 0;
+            if (next != 0 && next != NEXT_SEGMENT) {
+                // A record with a good checksum was not torn, only the last segment has a tail,
+                // and a tail has no intact record after it
+                if (i < segments.size() - 1 || intact(buffer, position) || intactAfter(buffer, position)) {
+                    throw new IOException("Journal segment " + path(segment) + " is damaged at byte " + position
+                            + " after record " + found + "; acknowledged records would be lost");
+                }
+                log.warn("Discarding the torn record at byte {} of {}, after record {}",
+                        position, path(segment), found);
+            }
+            writeBuffer = buffer;
+            writeSegment = segment;
+        }
+
+        if (writeBuffer == null) {
+            writeSegment = 1;
+            writeBuffer = map(writeSegment);
+        } else {
+            // Whatever follows the last complete record was never acknowledged
+            int position = writeBuffer.position();
+            byte[] zeros = new byte[Math.min(64 * 1024, writeBuffer.limit() - position)];
+            while (writeBuffer.hasRemaining()) {
+                writeBuffer.put(zeros, 0, Math.min(zeros.length, writeBuffer.remaining()));
+            }
+            writeBuffer.position(position);
+            writeBuffer.force();
+        }
+
+        lastSequence = Math.max(found, appliedSequence);
+        durableSequence = lastSequence;
+        log.info("Expense journal opened in {}: {} segments, last record {}, last applied {}",
+                directory, segments.size(), found, appliedSequence);
+
+        flusher = new Thread(this::flushLoop, "expense-journal-flush");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * Appends an expense that has been validated but not saved. The future completes with
+     * the numbered entry once it is on disk.
+     */
+    CompletableFuture<Entry> append(Expense expense) {
+        CompletableFuture<Entry> future = new CompletableFuture<>();
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("The expense journal is closed");
+            }
+            Entry entry = Entry.of(lastSequence + 1, LocalDateTime.now(), expense);
+            byte[] body = encode(entry);
+            int size = RECORD_HEADER_BYTES + body.length;
+            if (size + 4 > segmentBytes) {
+                throw new IllegalArgumentException("Expense is too large for a journal segment");
+            }
+            // Always leave room for the NEXT_SEGMENT marker
+            if (writeBuffer.remaining() < size + 4) {
+                writeBuffer.putInt(NEXT_SEGMENT);
+                writeSegment++;
+                writeBuffer = mapUnchecked(writeSegment);
+            }
+
+            CRC32C crc = new CRC32C();
+            crc.update(body);
+            writeBuffer.putInt(body.length).putInt((int) crc.getValue()).put(body);
+            lastSequence = entry.sequence();
+            pending.add(new Pending(entry, writeBuffer, future));
+            notifyAll();
+        }
+        return future;
+    }
+
+    /**
+     * Forces what has been appended to disk, then completes the appends. Appends that
+     * arrive while a force is running are forced together on the next pass.
+     */
+    private void flushLoop() {
+        while (true) {
+            List<Pending> batch;
+            synchronized (this) {
+                while (pending.isEmpty() && !closed) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+                if (pending.isEmpty()) {
+                    return;
+                }
+                batch = pending;
+                pending = new ArrayList<>();
+            }
+
+            try {
+                MappedByteBuffer forced = null;
+                for (Pending append : batch) {
+                    if (append.buffer() != forced) {
+                        forced = append.buffer();
+                        forced.force();
+                    }
+                }
+            } catch (UncheckedIOException e) {
+                // Later records cannot become durable before these, so stop accepting any
+                log.error("Could not force the expense journal to disk; it is closed until restart", e);
+                synchronized (this) {
+                    closed = true;
+                    pending.forEach(append -> append.future().completeExceptionally(e));
+                    pending.clear();
+                }
+                batch.forEach(append -> append.future().completeExceptionally(e));
+                return;
+            }
+
+            synchronized (this) {
+                durableSequence = batch.get(batch.size() - 1).entry().sequence();
+                notifyAll();
+            }
+            domainMetrics.recordJournalCommit(batch.size());
+            batch.forEach(append -> append.future().complete(append.entry()));
+        }
+    }
+
+    /**
+     * Stops accepting appends and waits for those already made to be forced.
+     */
+    void close() throws InterruptedException {
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+        }
+        flusher.join();
+    }
+
+    synchronized long lastSequence() {
+        return lastSequence;
+    }
+
+    long durableSequence() {
+        return durableSequence;
+    }
+
+    int segmentCount() {
+        try {
+            return segments().size();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Waits until the given sequence is durable. Returns false if it is not within the timeout.
+     */
+    synchronized boolean awaitDurable(long sequence, long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (durableSequence < sequence && !closed) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                return false;
+            }
+            wait(remaining);
+        }
+        return durableSequence >= sequence;
+    }
+
+    /**
+     * Reads records in sequence order, skipping those up to and including afterSequence.
+     */
+    Reader reader(long afterSequence) throws IOException {
+        return new Reader(afterSequence);
+    }
+
+    private List<Long> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.endsWith(SEGMENT_SUFFIX))
+                    .map(name -> Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length())))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private Path path(long segment) {
+        return directory.resolve(String.format("%010d%s", segment, SEGMENT_SUFFIX));
+    }
+
+    private MappedByteBuffer map(long segment) throws IOException {
+        try (FileChannel channel = FileChannel.open(path(segment), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // The mapping stays valid after the channel is closed
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(segmentBytes, channel.size()));
+        }
+    }
+
+    private MappedByteBuffer mapUnchecked(long segment) {
+        try {
+            return map(segment);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not create journal segment " + path(segment), e);
+        }
+    }
+
+    private static byte[] encode(Entry entry) {
+        byte[] description = entry.description().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer body = ByteBuffer.allocate(BODY_FIXED_BYTES + description.length
+                + entry.shares().size() * SHARE_BYTES);
+        body.putLong(entry.sequence())
+                .putLong(entry.createdAt().toEpochSecond(ZoneOffset.UTC))
+                .putInt(entry.createdAt().getNano())
+                .putLong(entry.paidByUserId())
+                .putLong(entry.groupId() != null ? entry.groupId() : 0)
+                .put((byte) entry.splitType().ordinal())
+                .putLong(entry.amountCents())
+                .putInt(description.length)
+                .put(description)
+                .putInt(entry.shares().size());
+        for (Share share : entry.shares()) {
+            body.putLong(share.userId()).putLong(share.cents()).putInt(share.basisPoints());
+        }
+        return body.array();
+    }
+
+    /**
+     * Reads the record at the buffer's position and moves past it. Returns null, leaving
+     * the position unchanged, at the end of the written records or at a damaged record.
+     * A record must follow afterSequence directly unless afterSequence is 0.
+     */
+    private static Entry read(ByteBuffer buffer, long afterSequence) {
+        int start = buffer.position();
+        if (buffer.remaining() < RECORD_HEADER_BYTES) {
+            return null;
+        }
+        int length = buffer.getInt(start);
+        if (length < BODY_FIXED_BYTES || length > buffer.remaining() - RECORD_HEADER_BYTES) {
+            return null;
+        }
+        int checksum = buffer.getInt(start + 4);
+        ByteBuffer body = buffer.slice(start + RECORD_HEADER_BYTES, length);
+        CRC32C crc = new CRC32C();
+        crc.update(body.duplicate());
+        if ((int) crc.getValue() != checksum) {
+            return null;
+        }
+
+        long sequence = body.getLong();
+        if (afterSequence != 0 && sequence != afterSequence + 1) {
+            return null;
+        }
+        LocalDateTime createdAt = LocalDateTime.ofEpochSecond(body.getLong(), body.getInt(), ZoneOffset.UTC);
+        long paidByUserId = body.getLong();
+        long groupId = body.getLong();
+        SplitType splitType = SPLIT_TYPES[body.get()];
+        long amountCents = body.getLong();
+        byte[] description = new byte[body.getInt()];
+        body.get(description);
+        int shareCount = body.getInt();
+        List<Share> shares = new ArrayList<>(shareCount);
+        for (int i = 0; i < shareCount; i++) {
+            shares.add(new Share(body.getLong(), body.getLong(), body.getInt()));
+        }
+
+        buffer.position(start + RECORD_HEADER_BYTES + length);
+        return new Entry(sequence, createdAt, paidByUserId, groupId == 0 ? null : groupId, splitType,
+                amountCents, new String(description, StandardCharsets.UTF_8), shares);
+    }
+
+    /**
+     * Whether a complete record with a matching checksum starts at the given position,
+     * whatever its sequence.
+     */
+    private static boolean intact(ByteBuffer buffer, int start) {
+        if (buffer.limit() - start < RECORD_HEADER_BYTES) {
+            return false;
+        }
+        int length = buffer.getInt(start);
+        if (length < BODY_FIXED_BYTES || length > buffer.limit() - start - RECORD_HEADER_BYTES) {
+            return false;
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(start + RECORD_HEADER_BYTES, length));
+        return (int) crc.getValue() == buffer.getInt(start + 4);
+    }
+
+    /**
+     * Whether an intact record starts anywhere after the given position. Checks every
+     * offset, since a damaged length says nothing about where the next record begins;
+     * the zero-filled rest of a segment fails the length check at once.
+     */
+    private static boolean intactAfter(ByteBuffer buffer, int start) {
+        for (int position = start + 1; position <= buffer.limit() - RECORD_HEADER_BYTES; position++) {
+            if (intact(buffer, position)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Reads durable records in order, moving through the segments as the writer did.
+     * Not thread-safe; the journal has one reader, the applier.
+     */
+    final class Reader {
+
+        private final long afterSequence;
+        private final List<Long> finished = new ArrayList<>();
+        private long segment;
+        private MappedByteBuffer buffer;
+        private long readSequence;
+
+        private Reader(long afterSequence) throws IOException {
+            this.afterSequence = afterSequence;
+            List<Long> segments = segments();
+            this.segment = segments.isEmpty() ? 1 : segments.get(0);
+            this.buffer = map(segment);
+        }
+
+        /**
+         * Returns up to max durable records not read before, waiting up to timeoutMillis
+         * for the first one.
+         */
+        List<Entry> poll(int max, long timeoutMillis) throws InterruptedException {
+            List<Entry> entries = new ArrayList<>();
+            if (readSequence >= durableSequence && !awaitDurable(readSequence + 1, timeoutMillis)) {
+                return entries;
+            }
+            while (entries.size() < max && readSequence < durableSequence) {
+                Entry entry = read(buffer, readSequence < afterSequence ? 0 : readSequence);
+                if (entry == null) {
+                    if (!nextSegment()) {
+                        break;
+                    }
+                    continue;
+                }
+                readSequence = entry.sequence();
+                if (entry.sequence() > afterSequence) {
+                    entries.add(entry);
+                }
+            }
+            return entries;
+        }
+
+        /**
+         * Deletes the segments this reader has gone past. Call once the records read so
+         * far are in the database.
+         */
+        void deleteFinished() {
+            for (long done : finished) {
+                try {
+                    Files.deleteIfExists(path(done));
+                } catch (IOException e) {
+                    log.warn("Could not delete applied journal segment {}", path(done), e);
+                }
+            }
+            finished.clear();
+        }
+
+        private boolean nextSegment() {
+            if (!Files.exists(path(segment + 1))) {
+                return false;
+            }
+            try {
+                MappedByteBuffer next = map(segment + 1);
+                finished.add(segment);
+                segment++;
+                buffer = next;
+                return true;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * An accepted expense as recorded in the journal; amounts are in cents.
+     */
+    record Entry(long sequence, LocalDateTime createdAt, long paidByUserId, Long groupId, SplitType splitType,
+                 long amountCents, String description, List<Share> shares) {
+
+        static Entry of(long sequence, LocalDateTime createdAt, Expense expense) {
+            List<Share> shares = new ArrayList<>(expense.getSplits().size());
+            for (Split split : expense.getSplits()) {
+                shares.add(new Share(split.getUser().getId(), Money.toCents(split.getAmount()),
+                        split.getPercentage() != null ? (int) Money.toBasisPoints(split.getPercentage()) : -1));
+            }
+            return new Entry(sequence, createdAt, expense.getPaidBy().getId(),
+                    expense.getGroup() != null ? expense.getGroup().getId() : null, expense.getSplitType(),
+                    Money.toCents(expense.getAmount()), expense.getDescription(), shares);
+        }
+    }
+
+    record Share(long userId, long cents, int basisPoints) {}
+
+    private record Pending(Entry entry, MappedByteBuffer buffer, CompletableFuture<Entry> future) {}
+}
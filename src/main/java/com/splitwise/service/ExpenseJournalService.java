@@ -0,0 +1,247 @@
+package com.splitwise.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.splitwise.dto.request.CreateExpenseRequest;
+import com.splitwise.dto.response.ExpenseReceiptResponse;
+import com.splitwise.dto.response.JournalStatusResponse;
+import com.splitwise.entity.Expense;
+import com.splitwise.entity.JournalDeadLetter;
+import com.splitwise.metrics.DomainMetrics;
+import com.splitwise.repository.ExpenseRepository;
+import com.splitwise.repository.JournalDeadLetterRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Optional write path for POST /api/expenses, enabled by splitwise.journal.enabled.
+ *
+ * A request is validated exactly as a direct create, appended to the {@link ExpenseJournal}
+ * and acknowledged once the record is on disk, without writing to the database. An
+ * applier thread then saves journaled expenses in order, splitwise.journal.apply-batch-size
+ * per transaction, and applies them to the ledger. Each saved expense keeps its journal
+ * sequence, so after a restart the applier resumes after the highest sequence in the
+ * expenses table, or among the dead letters, and replays only what had not been handled.
+ * That needs a database that outlives the process, so an in-memory one is refused.
+ *
+ * A batch that fails is retried one record at a time. A record that still fails, for
+ * example because its payer no longer exists, was nevertheless acknowledged, so it is
+ * appended as a JSON line to dead-letters.ndjson in the journal directory, to be corrected
+ * and resubmitted, counted in splitwise.journal.dead-letters and marked as handled in the
+ * journal_dead_letters table.
+ */
+@Service
+public class ExpenseJournalService {
+
+    private static final Logger log = LoggerFactory.getLogger(ExpenseJournalService.class);
+
+    /** How long a request waits for its record to reach the disk. */
+    private static final long ACK_TIMEOUT_SECONDS = 10;
+    private static final long POLL_MILLIS = 500;
+    private static final String DEAD_LETTER_FILE = "dead-letters.ndjson";
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final ExpenseService expenseService;
+    private final UserDirectory userDirectory;
+    private final JournalDeadLetterRepository journalDeadLetterRepository;
+    private final DomainMetrics domainMetrics;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate readOnlyTransaction;
+    private final int applyBatchSize;
+    private final ExpenseJournal journal;
+    private final Path deadLetterFile;
+    private final long appliedAtStart;
+    private volatile long appliedSequence;
+    // Written only by the applier
+    private volatile long deadLetters;
+    private volatile boolean running = true;
+    private Thread applier;
+
+    public ExpenseJournalService(ExpenseService expenseService,
+                                 UserDirectory userDirectory,
+                                 ExpenseRepository expenseRepository,
+                                 JournalDeadLetterRepository journalDeadLetterRepository,
+                                 DomainMetrics domainMetrics,
+                                 PlatformTransactionManager transactionManager,
+                                 ObjectMapper objectMapper,
+                                 @Value("${splitwise.journal.enabled:false}") boolean enabled,
+                                 @Value("${splitwise.journal.path:journal}") String path,
+                                 @Value("${splitwise.journal.segment-mb:64}") int segmentMb,
+                                 @Value("${splitwise.journal.apply-batch-size:500}") int applyBatchSize,
+                                 @Value("${spring.datasource.url:}") String datasourceUrl) {
+        if (enabled && datasourceUrl.startsWith("jdbc:h2:mem:")) {
+            throw new IllegalStateException("splitwise.journal.enabled needs a file-backed database; "
+                    + datasourceUrl + " is lost on restart, so every replayed record would be dead-lettered");
+        }
+        this.expenseService = expenseService;
+        this.userDirectory = userDirectory;
+        this.journalDeadLetterRepository = journalDeadLetterRepository;
+        this.domainMetrics = domainMetrics;
+        this.objectMapper = objectMapper;
+        this.deadLetterFile = Path.of(path, DEAD_LETTER_FILE);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.applyBatchSize = applyBatchSize;
+
+        if (enabled) {
+            Long applied = expenseRepository.findMaxJournalSequence();
+            Long deadLettered = journalDeadLetterRepository.findMaxSequence();
+            this.appliedAtStart = Math.max(applied != null ? applied : 0, deadLettered != null ? deadLettered : 0);
+            this.appliedSequence = appliedAtStart;
+            try {
+                this.journal = new ExpenseJournal(Path.of(path), segmentMb * 1024 * 1024, appliedAtStart,
+                        domainMetrics);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not open the expense journal in " + path, e);
+            }
+        } else {
+            this.appliedAtStart = 0;
+            this.journal = null;
+        }
+    }
+
+    /**
+     * Starts applying once the application is ready, so balance snapshots see every expense.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void startApplier() throws IOException {
+        if (journal == null) {
+            return;
+        }
+        ExpenseJournal.Reader reader = journal.reader(appliedAtStart);
+        applier = new Thread(() -> applyLoop(reader), "expense-journal-apply");
+        applier.setDaemon(true);
+        applier.start();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (journal == null) {
+            return;
+        }
+        // Acknowledged records that were not applied yet are replayed on the next start
+        journal.close();
+        running = false;
+        if (applier != null) {
+            applier.join(TimeUnit.SECONDS.toMillis(ACK_TIMEOUT_SECONDS));
+        }
+    }
+
+    public boolean isEnabled() {
+        return journal != null;
+    }
+
+    /**
+     * Validates an expense and appends it to the journal, returning once it is durable.
+     */
+    public ExpenseReceiptResponse submit(CreateExpenseRequest request) {
+        Expense expense = readOnlyTransaction.execute(status -> expenseService.buildExpense(
+                request, userDirectory.loadUsers(ExpenseService.participantIds(request))));
+        try {
+            ExpenseJournal.Entry entry = journal.append(expense).get(ACK_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            return new ExpenseReceiptResponse(entry.sequence(), entry.createdAt());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the expense journal", e);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new IllegalStateException("The expense could not be written to the journal", e);
+        }
+    }
+
+    public JournalStatusResponse status() {
+        if (journal == null) {
+            return new JournalStatusResponse(false, 0, 0, 0, 0, 0);
+        }
+        return new JournalStatusResponse(true, journal.lastSequence(), journal.durableSequence(),
+                appliedSequence, journal.segmentCount(), deadLetters);
+    }
+
+    private void applyLoop(ExpenseJournal.Reader reader) {
+        while (running) {
+            try {
+                List<ExpenseJournal.Entry> entries = reader.poll(applyBatchSize, POLL_MILLIS);
+                if (entries.isEmpty()) {
+                    continue;
+                }
+                apply(entries);
+                appliedSequence = entries.get(entries.size() - 1).sequence();
+                reader.deleteFinished();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Expense journal applier failed", e);
+            }
+        }
+    }
+
+    private void apply(List<ExpenseJournal.Entry> entries) {
+        try {
+            expenseService.applyJournalEntries(entries);
+        } catch (RuntimeException e) {
+            log.warn("Applying journal records {} to {} failed, retrying one at a time",
+                    entries.get(0).sequence(), entries.get(entries.size() - 1).sequence(), e);
+            for (ExpenseJournal.Entry entry : entries) {
+                try {
+                    expenseService.applyJournalEntries(List.of(entry));
+                } catch (RuntimeException entryFailure) {
+                    deadLetter(entry, entryFailure);
+                }
+            }
+        }
+    }
+
+    /**
+     * Keeps a record that cannot be applied although its client was told it was accepted.
+     * The line is synced before the applier moves on and the segment can be deleted, and
+     * only then is the sequence marked as handled, so a crash in between at worst writes
+     * the line twice.
+     */
+    private void deadLetter(ExpenseJournal.Entry entry, RuntimeException failure) {
+        deadLetters++;
+        domainMetrics.recordJournalDeadLetter();
+        log.error("Journal record {} could not be applied and was moved to {}", entry.sequence(), deadLetterFile,
+                failure);
+
+        Map<String, Object> line = new LinkedHashMap<>();
+        line.put("failedAt", LocalDateTime.now());
+        line.put("error", failure.getMessage());
+        line.put("entry", entry);
+        try {
+            Files.writeString(deadLetterFile, objectMapper.writeValueAsString(line) + "\n",
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.DSYNC);
+        } catch (IOException e) {
+            // The log is then the only copy left
+            log.error("Could not write journal record {} to {}: {}", entry.sequence(), deadLetterFile, entry, e);
+        }
+
+        String error = failure.getMessage();
+        if (error != null && error.length() > MAX_ERROR_LENGTH) {
+            error = error.substring(0, MAX_ERROR_LENGTH);
+        }
+        try {
+            journalDeadLetterRepository.save(new JournalDeadLetter(entry.sequence(), error, LocalDateTime.now()));
+        } catch (RuntimeException e) {
+            // Replayed after a restart, when it is dead-lettered again
+            log.error("Could not mark journal record {} as dead-lettered", entry.sequence(), e);
+        }
+    }
+}
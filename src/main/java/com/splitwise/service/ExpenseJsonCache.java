@@ -0,0 +1,107 @@
+package com.splitwise.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.splitwise.dto.response.ExpenseResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps each listed expense as the JSON bytes of its ExpenseResponse, so listing a page
+ * of expenses that were listed before neither loads them nor serializes them again.
+ *
+ * An expense, its splits and the names of its users never change once written, so
+ * entries are never stale. The cache is bounded by the total size of the JSON it holds
+ * (splitwise.cache.expense-json.max-mb) and evicts by frequency of use.
+ */
+@Service
+public class ExpenseJsonCache {
+
+    private static final byte[] PAGE_START = "{\"items\":[".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] PAGE_NEXT = "],\"next\":".getBytes(StandardCharsets.UTF_8);
+
+    /** Rough per-entry cost beyond the JSON itself: key, entry, array header and timestamp. */
+    private static final int ENTRY_OVERHEAD_BYTES = 96;
+
+    private final ObjectWriter responseWriter;
+    private final ObjectWriter stringWriter;
+    private final Cache<Long, CachedExpense> cache;
+
+    public ExpenseJsonCache(ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                            @Value("${splitwise.cache.expense-json.max-mb:64}") long maxMegabytes) {
+        this.responseWriter = objectMapper.writerFor(ExpenseResponse.class);
+        this.stringWriter = objectMapper.writerFor(String.class);
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxMegabytes * 1024 * 1024)
+                .<Long, CachedExpense>weigher((id, entry) -> entry.json().length + ENTRY_OVERHEAD_BYTES)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "expense-json");
+    }
+
+    public Map<Long, CachedExpense> getAllPresent(Collection<Long> ids) {
+        return cache.getAllPresent(ids);
+    }
+
+    /**
+     * Serializes a response and caches it. Only responses built from expenses read back
+     * from the database belong here: amounts then carry their stored scale, as they do
+     * in every listing.
+     */
+    public CachedExpense put(ExpenseResponse response) {
+        CachedExpense entry;
+        try {
+            entry = new CachedExpense(responseWriter.writeValueAsBytes(response), response.getCreatedAt());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize expense " + response.getId(), e);
+        }
+        cache.put(response.getId(), entry);
+        return entry;
+    }
+
+    /**
+     * Writes a page as {"items": [...], "next": next}, copying each expense's cached
+     * bytes as they are.
+     */
+    public byte[] page(List<CachedExpense> items, String next) {
+        int size = PAGE_START.length + PAGE_NEXT.length + 96;
+        for (CachedExpense item : items) {
+            size += item.json().length + 1;
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(size);
+        out.writeBytes(PAGE_START);
+        for (int i = 0; i < items.size(); i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            out.writeBytes(items.get(i).json());
+        }
+        out.writeBytes(PAGE_NEXT);
+        try {
+            out.writeBytes(stringWriter.writeValueAsBytes(next));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize cursor", e);
+        }
+        out.write('}');
+        return out.toByteArray();
+    }
+
+    /**
+     * @param json      the expense's ExpenseResponse as UTF-8 JSON
+     * @param createdAt kept to build the next-page cursor without loading the expense
+     */
+    public record CachedExpense(byte[] json, LocalDateTime createdAt) {
+    }
+}
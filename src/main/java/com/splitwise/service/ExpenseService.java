@@ -4,20 +4,34 @@ import com.splitwise.dto.request.CreateExpenseRequest;
 import com.splitwise.dto.response.ExpenseResponse;
 import com.splitwise.dto.response.UserResponse;
 import com.splitwise.entity.Expense;
+import com.splitwise.entity.ExpenseParticipant;
 import com.splitwise.entity.Group;
 import com.splitwise.entity.Split;
 import com.splitwise.entity.User;
-import com.splitwise.enums.SplitType;
+import com.splitwise.enums.ParticipantRole;
 import com.splitwise.exception.InvalidExpenseException;
 import com.splitwise.exception.ResourceNotFoundException;
+import com.splitwise.jfr.CreateExpenseEvent;
+import com.splitwise.metrics.DomainMetrics;
+import com.splitwise.repository.ExpenseParticipantRepository;
 import com.splitwise.repository.ExpenseRepository;
+import com.splitwise.repository.GroupRepository;
+import com.splitwise.util.Money;
+import com.splitwise.service.ExpenseJsonCache.CachedExpense;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -25,22 +39,88 @@ import java.util.stream.Collectors;
 public class ExpenseService {
 
     private final ExpenseRepository expenseRepository;
-    private final UserService userService;
-    private final GroupService groupService;
-
-    public ExpenseService(ExpenseRepository expenseRepository, UserService userService, GroupService groupService) {
+    private final ExpenseParticipantRepository expenseParticipantRepository;
+    private final UserDirectory userDirectory;
+    private final GroupRepository groupRepository;
+    private final BalanceLedgerService balanceLedgerService;
+    private final ExpenseSplitter expenseSplitter;
+    private final DomainMetrics domainMetrics;
+    private final ExpenseJsonCache expenseJsonCache;
+    private final int defaultPageSize;
+    private final int maxPageSize;
+
+    public ExpenseService(ExpenseRepository expenseRepository,
+                          ExpenseParticipantRepository expenseParticipantRepository,
+                          UserDirectory userDirectory, GroupRepository groupRepository,
+                          BalanceLedgerService balanceLedgerService, ExpenseSplitter expenseSplitter,
+                          DomainMetrics domainMetrics, ExpenseJsonCache expenseJsonCache,
+                          @Value("${splitwise.pagination.default-limit:50}") int defaultPageSize,
+                          @Value("${splitwise.pagination.max-limit:500}") int maxPageSize) {
         this.expenseRepository = expenseRepository;
-        this.userService = userService;
-        this.groupService = groupService;
+        this.expenseParticipantRepository = expenseParticipantRepository;
+        this.userDirectory = userDirectory;
+        this.groupRepository = groupRepository;
+        this.balanceLedgerService = balanceLedgerService;
+        this.expenseSplitter = expenseSplitter;
+        this.domainMetrics = domainMetrics;
+        this.expenseJsonCache = expenseJsonCache;
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
     }
 
     @Transactional
     public ExpenseResponse createExpense(CreateExpenseRequest request) {
-        // Validate and fetch entities
-        User paidBy = userService.findUserById(request.getPaidByUserId());
+        CreateExpenseEvent event = new CreateExpenseEvent();
+        event.begin();
+
+        // Validate and fetch entities: payer and all participants in a single query
+        Map<Long, User> users = userDirectory.loadUsers(participantIds(request));
+        Expense expense = buildExpense(request, users);
+
+        Expense savedExpense = expenseRepository.save(expense);
+
+        // Keep balances current in the same transaction
+        balanceLedgerService.applyExpenses(List.of(savedExpense));
+        domainMetrics.recordSplits(savedExpense.getSplits().size());
+
+        if (event.shouldCommit()) {
+            event.expenseId = savedExpense.getId();
+            event.splitType = savedExpense.getSplitType().name();
+            event.participantCount = savedExpense.getSplits().size();
+            event.groupId = savedExpense.getGroup() != null ? savedExpense.getGroup().getId() : 0;
+            event.commit();
+        }
+
+        return convertToResponse(savedExpense);
+    }
+
+    /**
+     * Ids of every user an expense request refers to: the payer and each participant.
+     */
+    static Set<Long> participantIds(CreateExpenseRequest request) {
+        Set<Long> userIds = new HashSet<>(request.getSplits().keySet());
+        userIds.add(request.getPaidByUserId());
+        return userIds;
+    }
+
+    /**
+     * Validates a request and builds the unsaved expense and its splits.
+     * users must contain the entities for the request's participant ids.
+     */
+    Expense buildExpense(CreateExpenseRequest request, Map<Long, User> users) {
+        Map<Long, Group> groups = request.getGroupId() != null ? findGroups(Set.of(request.getGroupId())) : Map.of();
+        return buildExpense(request, users, groups);
+    }
+
+    /**
+     * As {@link #buildExpense(CreateExpenseRequest, Map)}, with the request's group taken from
+     * groups, loaded beforehand with {@link #findGroups}.
+     */
+    Expense buildExpense(CreateExpenseRequest request, Map<Long, User> users, Map<Long, Group> groups) {
+        User paidBy = ExpenseSplitter.requireUser(users, request.getPaidByUserId());
         Group group = null;
         if (request.getGroupId() != null) {
-            group = groupService.findGroupById(request.getGroupId());
+            group = requireGroup(groups, request.getGroupId());
             // Validate payer is in group
             if (!group.getMembers().contains(paidBy)) {
                 throw new InvalidExpenseException("Payer must be a member of the group");
@@ -56,173 +136,183 @@ public class ExpenseService {
         expense.setSplitType(request.getSplitType());
 
         // Create splits based on split type
-        List<Split> splits = createSplits(expense, request, group);
+        List<Split> splits = expenseSplitter.createSplits(expense, request, group, users);
         expense.setSplits(splits);
 
         // Validate total
-        validateSplits(expense);
+        expenseSplitter.validateSplits(expense);
 
-        Expense savedExpense = expenseRepository.save(expense);
-        return convertToResponse(savedExpense);
+        addParticipants(expense);
+        return expense;
     }
 
-    private List<Split> createSplits(Expense expense, CreateExpenseRequest request, Group group) {
-        List<Split> splits = new ArrayList<>();
-
-        switch (request.getSplitType()) {
-            case EQUAL:
-                splits = createEqualSplits(expense, request, group);
-                break;
-            case EXACT:
-                splits = createExactSplits(expense, request);
-                break;
-            case PERCENTAGE:
-                splits = createPercentageSplits(expense, request);
-                break;
+    /**
+     * Loads the groups with the given ids, leaving out ids that have none.
+     * Reads through the repository rather than GroupService: a group that is not found
+     * must not leave a @Transactional proxy with an exception, which would mark a shared
+     * batch transaction rollback-only even though the caller handles it.
+     */
+    Map<Long, Group> findGroups(Collection<Long> groupIds) {
+        Map<Long, Group> groups = new HashMap<>();
+        for (Long groupId : groupIds) {
+            // By id, so each group comes from the second-level cache when it is there
+            groupRepository.findById(groupId).ifPresent(group -> groups.put(groupId, group));
         }
-
-        return splits;
+        return groups;
     }
 
-    private List<Split> createEqualSplits(Expense expense, CreateExpenseRequest request, Group group) {
-        List<Split> splits = new ArrayList<>();
-        Map<Long, BigDecimal> splitMap = request.getSplits();
-
-        int participantCount = splitMap.size();
-        BigDecimal equalShare = expense.getAmount()
-                .divide(BigDecimal.valueOf(participantCount), 2, RoundingMode.HALF_UP);
-
-        // Handle rounding: Last person gets the remainder
-        BigDecimal totalAssigned = BigDecimal.ZERO;
-        List<Long> userIds = new ArrayList<>(splitMap.keySet());
-
-        for (int i = 0; i < userIds.size(); i++) {
-            Long userId = userIds.get(i);
-            User user = userService.findUserById(userId);
-
-            // Validate user is in group if group expense
-            if (group != null && !group.getMembers().contains(user)) {
-                throw new InvalidExpenseException("User " + userId + " is not a member of the group");
-            }
+    private static Group requireGroup(Map<Long, Group> groups, Long groupId) {
+        Group group = groups.get(groupId);
+        if (group == null) {
+            throw new ResourceNotFoundException("Group not found with id: " + groupId);
+        }
+        return group;
+    }
 
-            Split split = new Split();
-            split.setExpense(expense);
-            split.setUser(user);
+    /**
+     * Adds the index rows for the by-user listing, saved along with the expense.
+     */
+    private static void addParticipants(Expense expense) {
+        Set<User> participants = new LinkedHashSet<>();
+        for (Split split : expense.getSplits()) {
+            participants.add(split.getUser());
+        }
+        expense.getParticipants().add(new ExpenseParticipant(expense.getPaidBy(), expense, ParticipantRole.PAYER));
+        for (User participant : participants) {
+            expense.getParticipants().add(new ExpenseParticipant(participant, expense, ParticipantRole.PARTICIPANT));
+        }
+    }
 
-            // Last participant gets exact remainder to handle rounding
-            if (i == userIds.size() - 1) {
-                split.setAmount(expense.getAmount().subtract(totalAssigned));
-            } else {
-                split.setAmount(equalShare);
-                totalAssigned = totalAssigned.add(equalShare);
+    /**
+     * Saves expenses accepted through the journal and applies them to the ledger in one
+     * transaction. They were validated when accepted, so only references are resolved.
+     */
+    @Transactional
+    void applyJournalEntries(List<ExpenseJournal.Entry> entries) {
+        Set<Long> userIds = new HashSet<>();
+        for (ExpenseJournal.Entry entry : entries) {
+            userIds.add(entry.paidByUserId());
+            entry.shares().forEach(share -> userIds.add(share.userId()));
+        }
+        Map<Long, User> users = userDirectory.loadUsers(userIds);
+        Map<Long, Group> groups = findGroups(entries.stream()
+                .map(ExpenseJournal.Entry::groupId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet()));
+
+        List<Expense> expenses = new ArrayList<>(entries.size());
+        for (ExpenseJournal.Entry entry : entries) {
+            Expense expense = new Expense();
+            expense.setDescription(entry.description());
+            expense.setAmount(Money.toBigDecimal(entry.amountCents()));
+            expense.setPaidBy(users.get(entry.paidByUserId()));
+            expense.setGroup(entry.groupId() != null ? requireGroup(groups, entry.groupId()) : null);
+            expense.setSplitType(entry.splitType());
+            expense.setCreatedAt(entry.createdAt());
+            expense.setJournalSequence(entry.sequence());
+            for (ExpenseJournal.Share share : entry.shares()) {
+                Split split = new Split();
+                split.setExpense(expense);
+                split.setUser(users.get(share.userId()));
+                split.setAmount(Money.toBigDecimal(share.cents()));
+                split.setPercentage(share.basisPoints() >= 0 ? Money.basisPointsToPercentage(share.basisPoints()) : null);
+                expense.getSplits().add(split);
             }
-
-            splits.add(split);
+            addParticipants(expense);
+            expenses.add(expense);
         }
 
-        return splits;
+        // Ledger first, as in a batch: its bulk updates flush before the expenses are managed
+        balanceLedgerService.applyExpenses(expenses);
+        expenseRepository.saveAll(expenses);
+        expenses.forEach(expense -> domainMetrics.recordSplits(expense.getSplits().size()));
     }
 
-    private List<Split> createExactSplits(Expense expense, CreateExpenseRequest request) {
-        List<Split> splits = new ArrayList<>();
-
-        for (Map.Entry<Long, BigDecimal> entry : request.getSplits().entrySet()) {
-            User user = userService.findUserById(entry.getKey());
-
-            Split split = new Split();
-            split.setExpense(expense);
-            split.setUser(user);
-            split.setAmount(entry.getValue());
-
-            splits.add(split);
-        }
+    /**
+     * The listing methods return a page as JSON: {"items": [ExpenseResponse, ...], "next": cursor},
+     * where next is an opaque token for the following page, or null on the last page.
+     */
+    @Transactional(readOnly = true)
+    public byte[] getAllExpenses(String cursor, Integer limit) {
+        int pageSize = resolvePageSize(limit);
+        ExpenseCursor after = ExpenseCursor.decode(cursor);
+        List<Long> ids = after == null
+                ? expenseRepository.findPageIds(Limit.of(pageSize + 1))
+                : expenseRepository.findPageIdsAfter(after.getCreatedAt(), after.getId(), Limit.of(pageSize + 1));
+        return loadPage(ids, pageSize);
+    }
 
-        return splits;
+    @Transactional(readOnly = true)
+    public byte[] getExpensesByGroup(Long groupId, String cursor, Integer limit) {
+        int pageSize = resolvePageSize(limit);
+        ExpenseCursor after = ExpenseCursor.decode(cursor);
+        List<Long> ids = after == null
+                ? expenseRepository.findPageIdsByGroupId(groupId, Limit.of(pageSize + 1))
+                : expenseRepository.findPageIdsByGroupIdAfter(
+                        groupId, after.getCreatedAt(), after.getId(), Limit.of(pageSize + 1));
+        return loadPage(ids, pageSize);
     }
 
-    private List<Split> createPercentageSplits(Expense expense, CreateExpenseRequest request) {
-        List<Split> splits = new ArrayList<>();
-        BigDecimal totalAssigned = BigDecimal.ZERO;
-
-        List<Map.Entry<Long, BigDecimal>> entries = new ArrayList<>(request.getSplits().entrySet());
-
-        for (int i = 0; i < entries.size(); i++) {
-            Map.Entry<Long, BigDecimal> entry = entries.get(i);
-            User user = userService.findUserById(entry.getKey());
-            BigDecimal percentage = entry.getValue();
-
-            Split split = new Split();
-            split.setExpense(expense);
-            split.setUser(user);
-            split.setPercentage(percentage);
-
-            // Calculate amount from percentage
-            // Last participant gets exact remainder to handle rounding
-            if (i == entries.size() - 1) {
-                split.setAmount(expense.getAmount().subtract(totalAssigned));
-            } else {
-                BigDecimal amount = expense.getAmount()
-                        .multiply(percentage)
-                        .divide(BigDecimal.valueOf(100), 2, RoundingMode.HALF_UP);
-                split.setAmount(amount);
-                totalAssigned = totalAssigned.add(amount);
-            }
+    @Transactional(readOnly = true)
+    public byte[] getExpensesByUser(Long userId, String cursor, Integer limit) {
+        int pageSize = resolvePageSize(limit);
+        ExpenseCursor after = ExpenseCursor.decode(cursor);
+        List<Long> ids = after == null
+                ? expenseParticipantRepository.findPageExpenseIds(userId, Limit.of(pageSize + 1))
+                : expenseParticipantRepository.findPageExpenseIdsAfter(
+                        userId, after.getCreatedAt(), after.getId(), Limit.of(pageSize + 1));
+        return loadPage(ids, pageSize);
+    }
 
-            splits.add(split);
+    private int resolvePageSize(Integer limit) {
+        if (limit == null) {
+            return defaultPageSize;
         }
-
-        return splits;
+        if (limit < 1 || limit > maxPageSize) {
+            throw new IllegalArgumentException("limit must be between 1 and " + maxPageSize + ", got: " + limit);
+        }
+        return limit;
     }
 
-    private void validateSplits(Expense expense) {
-        BigDecimal totalSplitAmount = expense.getSplits().stream()
-                .map(Split::getAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        // Allow 1 cent tolerance for rounding
-        BigDecimal difference = expense.getAmount().subtract(totalSplitAmount).abs();
-        if (difference.compareTo(new BigDecimal("0.01")) > 0) {
-            throw new InvalidExpenseException(
-                    String.format("Split amounts ($%.2f) do not match expense amount ($%.2f)",
-                            totalSplitAmount, expense.getAmount())
-            );
+    /**
+     * Builds a page from seek query results. The seek query asks for one row more than
+     * the page size; if that extra row came back there is a next page.
+     * Expenses already in the JSON cache are neither loaded nor serialized again.
+     */
+    private byte[] loadPage(List<Long> ids, int pageSize) {
+        boolean hasNext = ids.size() > pageSize;
+        List<Long> pageIds = hasNext ? ids.subList(0, pageSize) : ids;
+        if (pageIds.isEmpty()) {
+            return expenseJsonCache.page(Collections.emptyList(), null);
         }
 
-        if (expense.getSplitType() == SplitType.PERCENTAGE) {
-            BigDecimal totalPercentage = expense.getSplits().stream()
-                    .map(Split::getPercentage)
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-            if (totalPercentage.compareTo(BigDecimal.valueOf(100)) != 0) {
-                throw new InvalidExpenseException(
-                        "Percentages must sum to 100%, got: " + totalPercentage
-                );
+        Map<Long, CachedExpense> expensesById = new HashMap<>(expenseJsonCache.getAllPresent(pageIds));
+        if (expensesById.size() < pageIds.size()) {
+            List<Long> missing = new ArrayList<>();
+            for (Long id : pageIds) {
+                if (!expensesById.containsKey(id)) {
+                    missing.add(id);
+                }
+            }
+            for (Expense expense : expenseRepository.findWithDetailsByIdIn(missing)) {
+                expensesById.put(expense.getId(), expenseJsonCache.put(convertToResponse(expense)));
             }
         }
-    }
-
-    @Transactional(readOnly = true)
-    public List<ExpenseResponse> getAllExpenses() {
-        return expenseRepository.findAll().stream()
-                .map(this::convertToResponse)
-                .collect(Collectors.toList());
-    }
 
-    @Transactional(readOnly = true)
-    public List<ExpenseResponse> getExpensesByGroup(Long groupId) {
-        return expenseRepository.findByGroupId(groupId).stream()
-                .map(this::convertToResponse)
-                .collect(Collectors.toList());
-    }
+        // Keep the seek order, which the IN query does not preserve
+        List<CachedExpense> items = new ArrayList<>(pageIds.size());
+        for (Long id : pageIds) {
+            items.add(expensesById.get(id));
+        }
 
-    @Transactional(readOnly = true)
-    public List<ExpenseResponse> getExpensesByUser(Long userId) {
-        return expenseRepository.findByUserId(userId).stream()
-                .map(this::convertToResponse)
-                .collect(Collectors.toList());
+        Long lastId = pageIds.get(pageIds.size() - 1);
+        String next = hasNext
+                ? ExpenseCursor.after(expensesById.get(lastId).createdAt(), lastId).encode()
+                : null;
+        return expenseJsonCache.page(items, next);
     }
 
-    private ExpenseResponse convertToResponse(Expense expense) {
+    ExpenseResponse convertToResponse(Expense expense) {
         UserResponse paidByResponse = new UserResponse(
                 expense.getPaidBy().getId(),
                 expense.getPaidBy().getName(),
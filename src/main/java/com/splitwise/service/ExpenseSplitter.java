@@ -0,0 +1,206 @@
+package com.splitwise.service;
+
+import com.splitwise.dto.request.CreateExpenseRequest;
+import com.splitwise.entity.Expense;
+import com.splitwise.entity.Group;
+import com.splitwise.entity.Split;
+import com.splitwise.entity.User;
+import com.splitwise.enums.SplitType;
+import com.splitwise.exception.InvalidExpenseException;
+import com.splitwise.exception.ResourceNotFoundException;
+import com.splitwise.util.Money;
+import org.springframework.stereotype.Service;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Turns an expense request's split map into Split entities and validates them.
+ * Has no dependencies, so it works on detached entities outside a Spring context.
+ */
+@Service
+public class ExpenseSplitter {
+
+    /**
+     * Returns the user with the given id, or throws if it was not loaded.
+     */
+    public static User requireUser(Map<Long, User> users, Long userId) {
+        User user = users.get(userId);
+        if (user == null) {
+            throw new ResourceNotFoundException("User not found with id: " + userId);
+        }
+        return user;
+    }
+
+    /**
+     * Builds the splits of an expense from the request's split map, according to its
+     * split type. Amounts are computed in cents; where shares do not divide evenly the
+     * last participant takes the remainder.
+     */
+    public List<Split> createSplits(Expense expense, CreateExpenseRequest request, Group group,
+                                     Map<Long, User> users) {
+        List<Split> splits = new ArrayList<>();
+
+        switch (request.getSplitType()) {
+            case EQUAL:
+                splits = createEqualSplits(expense, request, group, users);
+                break;
+            case EXACT:
+                splits = createExactSplits(expense, request, users);
+                break;
+            case PERCENTAGE:
+                splits = createPercentageSplits(expense, request, users);
+                break;
+        }
+
+        return splits;
+    }
+
+    private List<Split> createEqualSplits(Expense expense, CreateExpenseRequest request, Group group,
+                                          Map<Long, User> users) {
+        List<Split> splits = new ArrayList<>();
+        Map<Long, BigDecimal> splitMap = request.getSplits();
+
+        long amountCents = toCents(expense.getAmount(), "Amount");
+        int participantCount = splitMap.size();
+        long equalShare = Money.share(amountCents, participantCount);
+
+        // Handle rounding: Last person gets the remainder
+        long totalAssigned = 0;
+        List<Long> userIds = new ArrayList<>(splitMap.keySet());
+
+        for (int i = 0; i < userIds.size(); i++) {
+            Long userId = userIds.get(i);
+            User user = requireUser(users, userId);
+
+            // Validate user is in group if group expense
+            if (group != null && !group.getMembers().contains(user)) {
+                throw new InvalidExpenseException("User " + userId + " is not a member of the group");
+            }
+
+            Split split = new Split();
+            split.setExpense(expense);
+            split.setUser(user);
+
+            // Last participant gets exact remainder to handle rounding
+            if (i == userIds.size() - 1) {
+                split.setAmount(Money.toBigDecimal(Money.subtract(amountCents, totalAssigned)));
+            } else {
+                split.setAmount(Money.toBigDecimal(equalShare));
+                totalAssigned = Money.add(totalAssigned, equalShare);
+            }
+
+            splits.add(split);
+        }
+
+        return splits;
+    }
+
+    private List<Split> createExactSplits(Expense expense, CreateExpenseRequest request, Map<Long, User> users) {
+        List<Split> splits = new ArrayList<>();
+
+        for (Map.Entry<Long, BigDecimal> entry : request.getSplits().entrySet()) {
+            User user = requireUser(users, entry.getKey());
+
+            Split split = new Split();
+            split.setExpense(expense);
+            split.setUser(user);
+            split.setAmount(Money.toBigDecimal(toCents(entry.getValue(), "Split amount")));
+
+            splits.add(split);
+        }
+
+        return splits;
+    }
+
+    private List<Split> createPercentageSplits(Expense expense, CreateExpenseRequest request,
+                                               Map<Long, User> users) {
+        List<Split> splits = new ArrayList<>();
+        long amountCents = toCents(expense.getAmount(), "Amount");
+        long totalAssigned = 0;
+
+        List<Map.Entry<Long, BigDecimal>> entries = new ArrayList<>(request.getSplits().entrySet());
+
+        for (int i = 0; i < entries.size(); i++) {
+            Map.Entry<Long, BigDecimal> entry = entries.get(i);
+            User user = requireUser(users, entry.getKey());
+            BigDecimal percentage = entry.getValue();
+
+            Split split = new Split();
+            split.setExpense(expense);
+            split.setUser(user);
+            split.setPercentage(percentage);
+
+            // Calculate amount from percentage
+            // Last participant gets exact remainder to handle rounding
+            if (i == entries.size() - 1) {
+                split.setAmount(Money.toBigDecimal(Money.subtract(amountCents, totalAssigned)));
+            } else {
+                long basisPoints = toBasisPoints(percentage);
+                long amount = Money.percentOf(amountCents, basisPoints);
+                split.setAmount(Money.toBigDecimal(amount));
+                totalAssigned = Money.add(totalAssigned, amount);
+            }
+
+            splits.add(split);
+        }
+
+        return splits;
+    }
+
+    /**
+     * Checks that the splits add up to the expense amount, allowing 1 cent for
+     * rounding, and that percentage splits add up to 100%.
+     */
+    public void validateSplits(Expense expense) {
+        long amountCents = toCents(expense.getAmount(), "Amount");
+        long totalSplitCents = 0;
+        for (Split split : expense.getSplits()) {
+            totalSplitCents = Money.add(totalSplitCents, toCents(split.getAmount(), "Split amount"));
+        }
+
+        // Allow 1 cent tolerance for rounding
+        if (Math.abs(Money.subtract(amountCents, totalSplitCents)) > 1) {
+            throw new InvalidExpenseException(
+                    String.format("Split amounts ($%.2f) do not match expense amount ($%.2f)",
+                            Money.toBigDecimal(totalSplitCents), expense.getAmount())
+            );
+        }
+
+        if (expense.getSplitType() == SplitType.PERCENTAGE) {
+            long totalBasisPoints = 0;
+            for (Split split : expense.getSplits()) {
+                totalBasisPoints = Money.add(totalBasisPoints, toBasisPoints(split.getPercentage()));
+            }
+
+            if (totalBasisPoints != Money.FULL_PERCENTAGE) {
+                BigDecimal totalPercentage = expense.getSplits().stream()
+                        .map(Split::getPercentage)
+                        .reduce(BigDecimal.ZERO, BigDecimal::add);
+                throw new InvalidExpenseException(
+                        "Percentages must sum to 100%, got: " + totalPercentage
+                );
+            }
+        }
+    }
+
+    private long toCents(BigDecimal amount, String field) {
+        if (amount.stripTrailingZeros().scale() > Money.SCALE) {
+            throw new InvalidExpenseException(field + " must have at most 2 decimal places, got: " + amount);
+        }
+        try {
+            return Money.toCents(amount);
+        } catch (ArithmeticException e) {
+            throw new InvalidExpenseException(field + " is too large, got: " + amount);
+        }
+    }
+
+    private long toBasisPoints(BigDecimal percentage) {
+        try {
+            return Money.toBasisPoints(percentage);
+        } catch (ArithmeticException e) {
+            throw new InvalidExpenseException("Percentage must have at most 2 decimal places, got: " + percentage);
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package com.splitwise.service;
+
+import com.splitwise.dto.request.CreateExpenseRequest;
+import com.splitwise.dto.response.ExpenseResponse;
+import com.splitwise.entity.Expense;
+import com.splitwise.entity.Group;
+import com.splitwise.entity.User;
+import com.splitwise.exception.InvalidExpenseException;
+import com.splitwise.exception.ResourceNotFoundException;
+import com.splitwise.exception.ServiceBusyException;
+import com.splitwise.metrics.DomainMetrics;
+import com.splitwise.repository.ExpenseRepository;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Optional write path for POST /api/expenses, enabled by splitwise.write-behind.enabled.
+ *
+ * Requests wait in a bounded queue of splitwise.write-behind.queue-capacity and a single
+ * writer thread commits them together: it takes up to splitwise.write-behind.batch-size
+ * requests, waiting at most splitwise.write-behind.linger-ms for more to arrive, and saves
+ * them in one transaction as a batch does. Each caller gets its own saved expense, or its
+ * own validation error, once that transaction has committed. If the transaction fails,
+ * its requests are retried one at a time so one bad item cannot fail the others.
+ *
+ * A full queue is refused with {@link ServiceBusyException} rather than waited on.
+ * Cannot be combined with the expense journal.
+ */
+@Service
+public class ExpenseWriteBehindService {
+
+    private static final Logger log = LoggerFactory.getLogger(ExpenseWriteBehindService.class);
+
+    /** How long a request waits for its batch to commit. */
+    private static final long COMMIT_TIMEOUT_SECONDS = 30;
+    private static final long POLL_MILLIS = 500;
+
+    private final ExpenseService expenseService;
+    private final ExpenseRepository expenseRepository;
+    private final BalanceLedgerService balanceLedgerService;
+    private final UserDirectory userDirectory;
+    private final DomainMetrics domainMetrics;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final long lingerNanos;
+    private final BlockingQueue<Pending> queue;
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    public ExpenseWriteBehindService(ExpenseService expenseService,
+                                     ExpenseRepository expenseRepository,
+                                     BalanceLedgerService balanceLedgerService,
+                                     UserDirectory userDirectory,
+                                     DomainMetrics domainMetrics,
+                                     EntityManager entityManager,
+                                     PlatformTransactionManager transactionManager,
+                                     @Value("${splitwise.write-behind.enabled:false}") boolean enabled,
+                                     @Value("${splitwise.write-behind.queue-capacity:10000}") int queueCapacity,
+                                     @Value("${splitwise.write-behind.batch-size:200}") int batchSize,
+                                     @Value("${splitwise.write-behind.linger-ms:2}") long lingerMs,
+                                     @Value("${splitwise.journal.enabled:false}") boolean journalEnabled) {
+        if (enabled && journalEnabled) {
+            throw new IllegalStateException(
+                    "splitwise.write-behind.enabled and splitwise.journal.enabled cannot both be true");
+        }
+        this.expenseService = expenseService;
+        this.expenseRepository = expenseRepository;
+        this.balanceLedgerService = balanceLedgerService;
+        this.userDirectory = userDirectory;
+        this.domainMetrics = domainMetrics;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(lingerMs);
+
+        if (enabled) {
+            this.queue = new ArrayBlockingQueue<>(queueCapacity);
+            this.writer = new Thread(this::writeLoop, "expense-write-behind");
+            this.writer.setDaemon(true);
+            this.writer.start();
+        } else {
+            this.queue = null;
+            this.writer = null;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (writer == null) {
+            return;
+        }
+        // The writer commits whatever is still queued before it stops
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(COMMIT_TIMEOUT_SECONDS));
+    }
+
+    public boolean isEnabled() {
+        return writer != null;
+    }
+
+    /**
+     * Queues an expense and returns it once the batch it was written in has committed.
+     */
+    public ExpenseResponse createExpense(CreateExpenseRequest request) {
+        Pending pending = new Pending(request, new CompletableFuture<>());
+        if (!running || !queue.offer(pending)) {
+            throw new ServiceBusyException("Too many expenses are waiting to be written, retry later");
+        }
+        try {
+            return pending.result().get(COMMIT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the expense to be written", e);
+        } catch (ExecutionException e) {
+            // Validation errors reach the caller as if the expense had been created directly
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("The expense could not be written", e.getCause());
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("Timed out waiting for the expense to be written", e);
+        }
+    }
+
+    private void writeLoop() {
+        List<Pending> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                collect(batch);
+                commit(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Expense write-behind batch failed", e);
+                batch.forEach(pending -> pending.result().completeExceptionally(e));
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Fills the batch from the queue, lingering briefly for requests that are about to arrive.
+     */
+    private void collect(List<Pending> batch) throws InterruptedException {
+        long deadline = System.nanoTime() + lingerNanos;
+        while (batch.size() < batchSize) {
+            queue.drainTo(batch, batchSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= batchSize || remaining <= 0) {
+                return;
+            }
+            Pending next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void commit(List<Pending> batch) {
+        Map<Pending, Expense> expenses = new LinkedHashMap<>();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                expenses.clear();
+                Set<Long> userIds = new HashSet<>();
+                Set<Long> groupIds = new HashSet<>();
+                for (Pending pending : batch) {
+                    userIds.addAll(ExpenseService.participantIds(pending.request()));
+                    if (pending.request().getGroupId() != null) {
+                        groupIds.add(pending.request().getGroupId());
+                    }
+                }
+                // Loaded up front, as in a batch chunk, so a missing user or group fails only
+                // its own request without marking the shared transaction rollback-only
+                Map<Long, User> users = userDirectory.findUsers(userIds);
+                Map<Long, Group> groups = expenseService.findGroups(groupIds);
+
+                for (Pending pending : batch) {
+                    try {
+                        expenses.put(pending, expenseService.buildExpense(pending.request(), users, groups));
+                    } catch (InvalidExpenseException | ResourceNotFoundException e) {
+                        pending.result().completeExceptionally(e);
+                    }
+                }
+
+                // Ledger first, then inserts flushed in JDBC-sized groups, as in a batch
+                balanceLedgerService.applyExpenses(expenses.values());
+                int saved = 0;
+                for (Expense expense : expenses.values()) {
+                    expenseRepository.save(expense);
+                    if (++saved % ExpenseBatchService.FLUSH_INTERVAL == 0) {
+                        entityManager.flush();
+                    }
+                }
+                entityManager.flush();
+            });
+        } catch (RuntimeException e) {
+            log.warn("Write-behind batch of {} expenses rolled back, retrying one at a time", batch.size(), e);
+            for (Pending pending : batch) {
+                if (pending.result().isDone()) {
+                    continue;
+                }
+                try {
+                    pending.result().complete(expenseService.createExpense(pending.request()));
+                } catch (RuntimeException itemFailure) {
+                    pending.result().completeExceptionally(itemFailure);
+                }
+            }
+            return;
+        }
+
+        domainMetrics.recordWriteBehindBatch(expenses.size());
+        expenses.forEach((pending, expense) -> {
+            domainMetrics.recordSplits(expense.getSplits().size());
+            pending.result().complete(expenseService.convertToResponse(expense));
+        });
+    }
+
+    private record Pending(CreateExpenseRequest request, CompletableFuture<ExpenseResponse> result) {
+    }
+}
@@ -18,11 +18,11 @@ import java.util.stream.Collectors;
 public class GroupService {
 
     private final GroupRepository groupRepository;
-    private final UserService userService;
+    private final UserDirectory userDirectory;
 
-    public GroupService(GroupRepository groupRepository, UserService userService) {
+    public GroupService(GroupRepository groupRepository, UserDirectory userDirectory) {
         this.groupRepository = groupRepository;
-        this.userService = userService;
+        this.userDirectory = userDirectory;
     }
 
     @Transactional(readOnly = true)
@@ -45,11 +45,7 @@ public class GroupService {
         group.setDescription(request.getDescription());
 
         // Fetch and add members
-        Set<User> members = new HashSet<>();
-        for (Long userId : request.getMemberIds()) {
-            User user = userService.findUserById(userId);
-            members.add(user);
-        }
+        Set<User> members = new HashSet<>(userDirectory.loadUsers(request.getMemberIds()).values());
         group.setMembers(members);
 
         Group savedGroup = groupRepository.save(group);
@@ -0,0 +1,79 @@
+package com.splitwise.service;
+
+import com.splitwise.entity.Expense;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs {@link NetBalanceCalculator} over large expense lists on several cores.
+ *
+ * Each worker claims chunks of the list from a shared cursor and sums them into its own
+ * calculator; the partial results are merged on the calling thread at the end. Lists
+ * shorter than the threshold are summed on the calling thread. Expenses must be fully
+ * loaded, since workers read them outside the persistence context's thread.
+ */
+@Service
+public class NetBalanceAggregator {
+
+    /** Expenses a worker claims at a time. */
+    static final int CHUNK_SIZE = 1024;
+
+    private final int parallelThreshold;
+    private final int parallelism;
+    private final ForkJoinPool pool;
+
+    public NetBalanceAggregator(@Value("${splitwise.balance.parallel-threshold:20000}") int parallelThreshold,
+                                @Value("${splitwise.balance.parallelism:0}") int parallelism) {
+        this.parallelThreshold = parallelThreshold;
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.pool = new ForkJoinPool(this.parallelism);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * Sums the expenses into this thread's calculator. The result is the same whether
+     * or not the work was split across workers.
+     */
+    public NetBalanceCalculator aggregate(List<Expense> expenses) {
+        NetBalanceCalculator result = NetBalanceCalculator.forCurrentThread();
+        if (parallelism == 1 || expenses.size() < parallelThreshold) {
+            return result.addAll(expenses);
+        }
+
+        AtomicInteger cursor = new AtomicInteger();
+        int workers = Math.min(parallelism, (expenses.size() + CHUNK_SIZE - 1) / CHUNK_SIZE);
+        List<ForkJoinTask<NetBalanceCalculator>> tasks = new ArrayList<>(workers);
+        for (int i = 0; i < workers; i++) {
+            tasks.add(pool.submit(() -> sumChunks(expenses, cursor)));
+        }
+
+        for (ForkJoinTask<NetBalanceCalculator> task : tasks) {
+            result.merge(task.join());
+        }
+        return result;
+    }
+
+    private static NetBalanceCalculator sumChunks(List<Expense> expenses, AtomicInteger cursor) {
+        // A fresh calculator per task: pool threads may serve overlapping aggregations
+        NetBalanceCalculator partial = new NetBalanceCalculator();
+        int start;
+        while ((start = cursor.getAndAdd(CHUNK_SIZE)) < expenses.size()) {
+            partial.addAll(expenses.subList(start, Math.min(start + CHUNK_SIZE, expenses.size())));
+        }
+        return partial;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+}
@@ -0,0 +1,158 @@
+package com.splitwise.service;
+
+import com.splitwise.entity.Expense;
+import com.splitwise.entity.Split;
+import com.splitwise.util.LongLongHashMap;
+import com.splitwise.util.Money;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Replays expenses into net balances in cents, overall and per group.
+ *
+ * Balances are summed in {@link LongLongHashMap}s keyed by user id, so adding an expense
+ * does not box ids or allocate intermediate sums. Instances keep their overall table
+ * between calculations, up to a size; use {@link #forCurrentThread()} to reuse one per thread.
+ * Not thread-safe.
+ */
+public class NetBalanceCalculator {
+
+    private static final ThreadLocal<NetBalanceCalculator> CURRENT =
+            ThreadLocal.withInitial(NetBalanceCalculator::new);
+
+    /** A larger overall table is dropped on reset rather than kept for the thread's lifetime. */
+    private static final int MAX_RETAINED_CAPACITY = 1 << 16;
+
+    private LongLongHashMap overall = new LongLongHashMap();
+    private final Map<Long, LongLongHashMap> byGroup = new HashMap<>();
+    private long expenseCount;
+    private long splitCount;
+
+    /**
+     * Returns this thread's calculator, cleared and ready for a new calculation.
+     * Results must be read before the thread starts another calculation.
+     */
+    public static NetBalanceCalculator forCurrentThread() {
+        NetBalanceCalculator calculator = CURRENT.get();
+        calculator.reset();
+        return calculator;
+    }
+
+    public void reset() {
+        if (overall.capacity() > MAX_RETAINED_CAPACITY) {
+            overall = new LongLongHashMap();
+        } else {
+            overall.clear();
+        }
+        // Group tables are not kept: a pooled thread would otherwise hold one for every
+        // group it has ever seen
+        byGroup.clear();
+        expenseCount = 0;
+        splitCount = 0;
+    }
+
+    public NetBalanceCalculator addAll(Iterable<Expense> expenses) {
+        for (Expense expense : expenses) {
+            add(expense);
+        }
+        return this;
+    }
+
+    /**
+     * Adds an expense's effect on each balance: the payer is credited the full amount
+     * and each participant is debited their share, both overall and within the
+     * expense's group.
+     */
+    public void add(Expense expense) {
+        LongLongHashMap group = null;
+        if (expense.getGroup() != null) {
+            group = byGroup.computeIfAbsent(expense.getGroup().getId(), id -> new LongLongHashMap());
+        }
+
+        add(group, expense.getPaidBy().getId(), Money.toCents(expense.getAmount()));
+        for (Split split : expense.getSplits()) {
+            add(group, split.getUser().getId(), Money.negate(Money.toCents(split.getAmount())));
+        }
+
+        expenseCount++;
+        splitCount += expense.getSplits().size();
+    }
+
+    /**
+     * Adds a balance carried over from a checkpoint rather than from an expense.
+     * groupId is null for a user's overall balance.
+     */
+    public void addBalance(Long groupId, long userId, long cents) {
+        if (groupId == null) {
+            overall.addTo(userId, cents);
+        } else {
+            byGroup.computeIfAbsent(groupId, id -> new LongLongHashMap()).addTo(userId, cents);
+        }
+    }
+
+    /**
+     * Adds a sum the database computed over several expenses: cents moves the user's
+     * overall balance and, when groupId is not null, their balance within that group.
+     */
+    public void addSum(Long groupId, long userId, long cents) {
+        add(groupId != null ? byGroup.computeIfAbsent(groupId, id -> new LongLongHashMap()) : null, userId, cents);
+    }
+
+    /**
+     * Counts expenses and splits that were summed by the database rather than added here.
+     */
+    public void addScanned(long expenses, long splits) {
+        expenseCount += expenses;
+        splitCount += splits;
+    }
+
+    private void add(LongLongHashMap group, long userId, long cents) {
+        overall.addTo(userId, cents);
+        if (group != null) {
+            group.addTo(userId, cents);
+        }
+    }
+
+    /**
+     * Adds another calculator's balances and counts into this one. Sums are exact, so
+     * merging partial results gives the same balances as one sequential pass.
+     */
+    public void merge(NetBalanceCalculator other) {
+        overall.addAll(other.overall);
+        other.byGroup.forEach((groupId, balances) -> {
+            if (!balances.isEmpty()) {
+                byGroup.computeIfAbsent(groupId, id -> new LongLongHashMap()).addAll(balances);
+            }
+        });
+        expenseCount += other.expenseCount;
+        splitCount += other.splitCount;
+    }
+
+    /**
+     * Net balance of every user across all expenses, keyed by user id.
+     */
+    public LongLongHashMap overall() {
+        return overall;
+    }
+
+    /**
+     * Calls action with each group id and the balances within that group.
+     * Groups with no expenses in this calculation are skipped.
+     */
+    public void forEachGroup(BiConsumer<Long, LongLongHashMap> action) {
+        byGroup.forEach((groupId, balances) -> {
+            if (!balances.isEmpty()) {
+                action.accept(groupId, balances);
+            }
+        });
+    }
+
+    public long expenseCount() {
+        return expenseCount;
+    }
+
+    public long splitCount() {
+        return splitCount;
+    }
+}
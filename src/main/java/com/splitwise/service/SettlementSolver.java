@@ -0,0 +1,406 @@
+package com.splitwise.service;
+
+import com.splitwise.enums.SettlementMode;
+import com.splitwise.jfr.SettlementEvent;
+import com.splitwise.util.LongLongHashMap;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Turns net balances into a list of transfers that settles every debt.
+ *
+ * GREEDY matches the largest debtor with the largest creditor, which needs at most n - 1
+ * transfers for n users. OPTIMAL needs the fewest transfers possible: n minus the largest
+ * number of disjoint groups of users whose balances sum to zero, since each such group
+ * can be settled on its own.
+ *
+ * To keep the exact search small, OPTIMAL first partitions users into independent
+ * components using the group ledger: every group's balances sum to zero, and so do the
+ * balances from expenses outside any group. Each component is then solved with a bitmask
+ * DP over its subsets, in parallel, and falls back to greedy when it is too large or the
+ * time budget runs out.
+ */
+@Service
+public class SettlementSolver {
+
+    private static final Logger log = LoggerFactory.getLogger(SettlementSolver.class);
+
+    /** How often, in subsets, the DP checks the deadline. */
+    private static final int DEADLINE_CHECK_MASK = (1 << 12) - 1;
+
+    private final int exactMaxUsers;
+    private final long timeBudgetNanos;
+    private final ForkJoinPool pool;
+
+    public SettlementSolver(@Value("${splitwise.settlement.exact-max-users:18}") int exactMaxUsers,
+                            @Value("${splitwise.settlement.time-budget-ms:200}") long timeBudgetMillis,
+                            @Value("${splitwise.settlement.parallelism:0}") int parallelism) {
+        // The DP keeps 9 bytes per subset, so 20 users already needs 9 MB
+        if (exactMaxUsers < 2 || exactMaxUsers > 20) {
+            throw new IllegalArgumentException("splitwise.settlement.exact-max-users must be between 2 and 20");
+        }
+        this.exactMaxUsers = exactMaxUsers;
+        this.timeBudgetNanos = TimeUnit.MILLISECONDS.toNanos(timeBudgetMillis);
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * Computes the transfers that settle the given balances.
+     *
+     * @param netBalances   each user's overall balance in cents, keyed by user id
+     * @param groupBalances each user's non-zero balance within each group; only used by OPTIMAL
+     */
+    public Settlement settle(LongLongHashMap netBalances, List<GroupBalance> groupBalances, SettlementMode mode) {
+        SettlementEvent event = new SettlementEvent();
+        event.begin();
+        long start = System.nanoTime();
+
+        List<Transfer> transfers;
+        Algorithm algorithm;
+        int components = 1;
+        if (mode == SettlementMode.GREEDY) {
+            transfers = greedy(Component.of(netBalances));
+            algorithm = Algorithm.GREEDY;
+        } else {
+            transfers = new ArrayList<>();
+            List<Component> parts = partition(netBalances, groupBalances);
+            components = parts.size();
+            boolean exact = solveComponents(parts, start + timeBudgetNanos, transfers);
+            transfers.sort(TRANSFER_ORDER);
+            algorithm = exact ? Algorithm.OPTIMAL : Algorithm.OPTIMAL_WITH_GREEDY_FALLBACK;
+        }
+
+        int[] debtors = {0};
+        int[] creditors = {0};
+        netBalances.forEach((userId, balance) -> {
+            if (balance < 0) {
+                debtors[0]++;
+            } else if (balance > 0) {
+                creditors[0]++;
+            }
+        });
+
+        long durationMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start);
+        if (event.shouldCommit()) {
+            event.mode = mode.name();
+            event.algorithm = algorithm.name();
+            event.debtors = debtors[0];
+            event.creditors = creditors[0];
+            event.components = components;
+            event.transactions = transfers.size();
+            event.commit();
+        }
+        return new Settlement(transfers, algorithm, durationMicros, debtors[0], creditors[0]);
+    }
+
+    /**
+     * Solves each component and adds its transfers. Components of more than two users
+     * run on the pool. Returns false if any component fell back to greedy.
+     */
+    private boolean solveComponents(List<Component> components, long deadline, List<Transfer> transfers) {
+        List<ForkJoinTask<ComponentResult>> tasks = new ArrayList<>();
+        boolean exact = true;
+
+        for (Component component : components) {
+            if (component.size() <= 2) {
+                transfers.addAll(greedy(component));
+            } else {
+                tasks.add(pool.submit(() -> solve(component, deadline)));
+            }
+        }
+
+        for (ForkJoinTask<ComponentResult> task : tasks) {
+            ComponentResult result = task.join();
+            transfers.addAll(result.transfers());
+            exact &= result.exact();
+        }
+        return exact;
+    }
+
+    /**
+     * Splits users with a non-zero balance into components whose balances sum to zero.
+     * Users who share a group with a non-zero balance are joined, and so are all users
+     * whose balance is not fully explained by their groups.
+     */
+    List<Component> partition(LongLongHashMap netBalances, List<GroupBalance> groupBalances) {
+        Component all = Component.of(netBalances);
+        int n = all.size();
+
+        LongLongHashMap indexOf = new LongLongHashMap(n);
+        for (int i = 0; i < n; i++) {
+            indexOf.put(all.userIds[i], i);
+        }
+
+        int[] parent = new int[n];
+        for (int i = 0; i < n; i++) {
+            parent[i] = i;
+        }
+
+        long[] residual = all.balances.clone();
+        LongLongHashMap firstMemberOfGroup = new LongLongHashMap();
+        for (GroupBalance groupBalance : groupBalances) {
+            if (!indexOf.containsKey(groupBalance.userId())) {
+                continue;
+            }
+            int index = (int) indexOf.get(groupBalance.userId());
+            residual[index] -= groupBalance.balance();
+
+            if (firstMemberOfGroup.containsKey(groupBalance.groupId())) {
+                union(parent, index, (int) firstMemberOfGroup.get(groupBalance.groupId()));
+            } else {
+                firstMemberOfGroup.put(groupBalance.groupId(), index);
+            }
+        }
+
+        int firstWithResidual = -1;
+        for (int i = 0; i < n; i++) {
+            if (residual[i] != 0) {
+                if (firstWithResidual < 0) {
+                    firstWithResidual = i;
+                } else {
+                    union(parent, i, firstWithResidual);
+                }
+            }
+        }
+
+        // Users are in id order, so members of each component are too
+        Map<Integer, List<Integer>> members = new LinkedHashMap<>();
+        List<Integer> nonZero = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            if (all.balances[i] != 0) {
+                members.computeIfAbsent(find(parent, i), root -> new ArrayList<>()).add(i);
+                nonZero.add(i);
+            }
+        }
+
+        List<Component> components = new ArrayList<>(members.size());
+        for (List<Integer> indexes : members.values()) {
+            Component component = all.subset(indexes);
+            if (component.sum() != 0) {
+                // Ledger rows disagree with each other; settle everyone together
+                log.warn("Group balances do not sum to the user totals; settling {} users as one component", n);
+                return List.of(all.subset(nonZero));
+            }
+            components.add(component);
+        }
+        return components;
+    }
+
+    /**
+     * Finds the largest number of disjoint zero-sum subsets with a DP over bitmasks and
+     * settles each subset greedily, which takes size - 1 transfers per subset.
+     */
+    private ComponentResult solve(Component component, long deadline) {
+        int k = component.size();
+        if (k > exactMaxUsers || System.nanoTime() > deadline) {
+            return new ComponentResult(greedy(component), false);
+        }
+
+        int full = (1 << k) - 1;
+        long[] sums = new long[full + 1];
+        // best[mask] = most zero-sum subsets a chain of removals from mask passes through
+        byte[] best = new byte[full + 1];
+
+        for (int mask = 1; mask <= full; mask++) {
+            if ((mask & DEADLINE_CHECK_MASK) == 0 && System.nanoTime() > deadline) {
+                return new ComponentResult(greedy(component), false);
+            }
+            sums[mask] = sums[mask & (mask - 1)] + component.balances[Integer.numberOfTrailingZeros(mask)];
+
+            int most = 0;
+            for (int rest = mask; rest != 0; rest &= rest - 1) {
+                most = Math.max(most, best[mask ^ (rest & -rest)]);
+            }
+            best[mask] = (byte) (sums[mask] == 0 ? most + 1 : most);
+        }
+
+        // Walk back from the full set; each stretch between zero-sum masks is one subset
+        List<Transfer> transfers = new ArrayList<>();
+        int mask = full;
+        int lastZeroSum = full;
+        while (mask != 0) {
+            int target = sums[mask] == 0 ? best[mask] - 1 : best[mask];
+            for (int rest = mask; rest != 0; rest &= rest - 1) {
+                int bit = rest & -rest;
+                if (best[mask ^ bit] == target) {
+                    mask ^= bit;
+                    break;
+                }
+            }
+            if (sums[mask] == 0) {
+                transfers.addAll(greedy(component.subset(lastZeroSum ^ mask)));
+                lastZeroSum = mask;
+            }
+        }
+        return new ComponentResult(transfers, true);
+    }
+
+    /**
+     * Matches the largest debtor with the largest creditor until all balances are zero.
+     * Ties are broken by user id so the result does not depend on input order.
+     *
+     * Time Complexity: O(n log n) where n is number of users
+     * Needs at most (n-1) transactions.
+     */
+    private static List<Transfer> greedy(Component component) {
+        List<Party> debtors = new ArrayList<>();
+        List<Party> creditors = new ArrayList<>();
+        for (int i = 0; i < component.size(); i++) {
+            long balance = component.balances[i];
+            if (balance < 0) {
+                debtors.add(new Party(component.userIds[i], -balance));
+            } else if (balance > 0) {
+                creditors.add(new Party(component.userIds[i], balance));
+            }
+        }
+
+        debtors.sort(BY_BALANCE_DESC);
+        creditors.sort(BY_BALANCE_DESC);
+
+        List<Transfer> transfers = new ArrayList<>();
+        int i = 0, j = 0;
+        while (i < debtors.size() && j < creditors.size()) {
+            Party debtor = debtors.get(i);
+            Party creditor = creditors.get(j);
+            long amount = Math.min(debtor.balance, creditor.balance);
+
+            transfers.add(new Transfer(debtor.userId, creditor.userId, amount));
+
+            debtor.balance -= amount;
+            creditor.balance -= amount;
+            if (debtor.balance == 0) {
+                i++;
+            }
+            if (creditor.balance == 0) {
+                j++;
+            }
+        }
+        return transfers;
+    }
+
+    private static int find(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    private static void union(int[] parent, int a, int b) {
+        int rootA = find(parent, a);
+        int rootB = find(parent, b);
+        if (rootA != rootB) {
+            // Keep the smaller index as root so components stay in id order
+            parent[Math.max(rootA, rootB)] = Math.min(rootA, rootB);
+        }
+    }
+
+    private static final Comparator<Party> BY_BALANCE_DESC = Comparator
+            .comparingLong((Party party) -> party.balance).reversed()
+            .thenComparingLong(party -> party.userId);
+
+    private static final Comparator<Transfer> TRANSFER_ORDER = Comparator
+            .comparingLong(Transfer::amount).reversed()
+            .thenComparingLong(Transfer::fromUserId)
+            .thenComparingLong(Transfer::toUserId);
+
+    public enum Algorithm {
+        GREEDY,
+        OPTIMAL,
+        /** OPTIMAL was asked for but at least one component was settled greedily. */
+        OPTIMAL_WITH_GREEDY_FALLBACK
+    }
+
+    /**
+     * A user's balance within one group, in cents.
+     */
+    public record GroupBalance(long userId, long groupId, long balance) {}
+
+    /**
+     * A payment of amount cents from one user to another.
+     */
+    public record Transfer(long fromUserId, long toUserId, long amount) {}
+
+    public record Settlement(List<Transfer> transfers, Algorithm algorithm, long durationMicros,
+                             int debtors, int creditors) {}
+
+    private record ComponentResult(List<Transfer> transfers, boolean exact) {}
+
+    /**
+     * Users and their balances, in ascending user id order.
+     */
+    static final class Component {
+        final long[] userIds;
+        final long[] balances;
+
+        private Component(long[] userIds, long[] balances) {
+            this.userIds = userIds;
+            this.balances = balances;
+        }
+
+        static Component of(LongLongHashMap netBalances) {
+            long[] userIds = new long[netBalances.size()];
+            int[] count = {0};
+            netBalances.forEach((userId, balance) -> userIds[count[0]++] = userId);
+            Arrays.sort(userIds);
+
+            long[] balances = new long[userIds.length];
+            for (int i = 0; i < userIds.length; i++) {
+                balances[i] = netBalances.get(userIds[i]);
+            }
+            return new Component(userIds, balances);
+        }
+
+        Component subset(List<Integer> indexes) {
+            long[] subsetIds = new long[indexes.size()];
+            long[] subsetBalances = new long[indexes.size()];
+            for (int i = 0; i < indexes.size(); i++) {
+                subsetIds[i] = userIds[indexes.get(i)];
+                subsetBalances[i] = balances[indexes.get(i)];
+            }
+            return new Component(subsetIds, subsetBalances);
+        }
+
+        Component subset(int mask) {
+            List<Integer> indexes = new ArrayList<>(Integer.bitCount(mask));
+            for (int rest = mask; rest != 0; rest &= rest - 1) {
+                indexes.add(Integer.numberOfTrailingZeros(rest));
+            }
+            return subset(indexes);
+        }
+
+        int size() {
+            return userIds.length;
+        }
+
+        long sum() {
+            long sum = 0;
+            for (long balance : balances) {
+                sum += balance;
+            }
+            return sum;
+        }
+    }
+
+    private static final class Party {
+        final long userId;
+        long balance;
+
+        Party(long userId, long balance) {
+            this.userId = userId;
+            this.balance = balance;
+        }
+    }
+}
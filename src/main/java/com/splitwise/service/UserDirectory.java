@@ -0,0 +1,143 @@
+package com.splitwise.service;
+
+import com.splitwise.dto.response.UserDirectoryStatsResponse;
+import com.splitwise.entity.User;
+import com.splitwise.exception.ResourceNotFoundException;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Resolves user ids in bulk, so hot paths issue one query per request instead of one per user.
+ *
+ * Names and emails are also kept in a small in-process cache. It is bounded by
+ * splitwise.user-directory.max-size and evicts the least recently used entry first.
+ */
+@Service
+public class UserDirectory {
+
+    private final EntityManager entityManager;
+    private final int maxSize;
+    private final Map<Long, UserSummary> cache;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public UserDirectory(EntityManager entityManager,
+                         @Value("${splitwise.user-directory.max-size:10000}") int maxSize) {
+        this.entityManager = entityManager;
+        this.maxSize = maxSize;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, UserSummary> eldest) {
+                return size() > UserDirectory.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * Returns the name and email of each requested user, loading any that are not
+     * cached with a single query.
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, UserSummary> resolve(Collection<Long> userIds) {
+        Map<Long, UserSummary> result = new HashMap<>();
+        Set<Long> missing = new HashSet<>();
+
+        synchronized (cache) {
+            for (Long userId : userIds) {
+                UserSummary summary = cache.get(userId);
+                if (summary != null) {
+                    result.put(userId, summary);
+                } else {
+                    missing.add(userId);
+                }
+            }
+        }
+        hits.addAndGet(result.size());
+        misses.addAndGet(missing.size());
+
+        if (!missing.isEmpty()) {
+            for (User user : loadUsers(missing).values()) {
+                result.put(user.getId(), UserSummary.of(user));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Loads user entities with a single query, for callers that need to reference them
+     * from other entities. Throws if any of the ids does not exist.
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, User> loadUsers(Collection<Long> userIds) {
+        Map<Long, User> users = findUsers(userIds);
+        for (Long userId : userIds) {
+            if (!users.containsKey(userId)) {
+                throw new ResourceNotFoundException("User not found with id: " + userId);
+            }
+        }
+        return users;
+    }
+
+    /**
+     * Like {@link #loadUsers}, but ids that do not exist are simply absent from the result.
+     * Users in the second-level cache are not queried; the rest are loaded with one query.
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, User> findUsers(Collection<Long> userIds) {
+        Map<Long, User> users = new HashMap<>();
+        List<User> loaded = entityManager.unwrap(Session.class)
+                .byMultipleIds(User.class)
+                .enableOrderedReturn(false)
+                .multiLoad(new ArrayList<>(new HashSet<>(userIds)));
+        for (User user : loaded) {
+            users.put(user.getId(), user);
+        }
+
+        synchronized (cache) {
+            users.values().forEach(user -> cache.put(user.getId(), UserSummary.of(user)));
+        }
+        return users;
+    }
+
+    public void invalidate(Long userId) {
+        synchronized (cache) {
+            cache.remove(userId);
+        }
+    }
+
+    public UserDirectoryStatsResponse stats() {
+        int size;
+        synchronized (cache) {
+            size = cache.size();
+        }
+        return new UserDirectoryStatsResponse(size, maxSize, hits.get(), misses.get());
+    }
+
+    /**
+     * Cached view of a user: just what balance and split responses need.
+     */
+    public static class UserSummary {
+        private final Long id;
+        private final String name;
+        private final String email;
+
+        public UserSummary(Long id, String name, String email) {
+            this.id = id;
+            this.name = name;
+            this.email = email;
+        }
+
+        static UserSummary of(User user) {
+            return new UserSummary(user.getId(), user.getName(), user.getEmail());
+        }
+
+        public Long getId() { return id; }
+        public String getName() { return name; }
+        public String getEmail() { return email; }
+    }
+}
@@ -14,9 +14,11 @@ import java.util.stream.Collectors;
 public class UserService {
 
     private final UserRepository userRepository;
+    private final UserDirectory userDirectory;
 
-    public UserService(UserRepository userRepository) {
+    public UserService(UserRepository userRepository, UserDirectory userDirectory) {
         this.userRepository = userRepository;
+        this.userDirectory = userDirectory;
     }
 
     @Transactional(readOnly = true)
@@ -48,6 +50,7 @@ public class UserService {
         user.setPhoneNumber(request.getPhoneNumber());
 
         User savedUser = userRepository.save(user);
+        userDirectory.invalidate(savedUser.getId());
         return convertToResponse(savedUser);
     }
 
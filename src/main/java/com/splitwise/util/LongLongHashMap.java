@@ -0,0 +1,209 @@
+package com.splitwise.util;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from long keys to long values, used to sum balances by user id.
+ *
+ * Unlike HashMap&lt;Long, Long&gt; it stores keys and values in primitive arrays, so adding to
+ * an existing key allocates nothing. {@link #clear()} keeps the arrays, which lets one
+ * instance be reused for many calculations on the same thread.
+ * Not thread-safe.
+ */
+public final class LongLongHashMap {
+
+    /** Marks an empty slot. Key 0 itself is stored outside the table. */
+    private static final long EMPTY = 0L;
+
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private long[] keys;
+    private long[] values;
+    private int mask;
+    private int size;
+    private int resizeThreshold;
+
+    private boolean hasZeroKey;
+    private long zeroValue;
+
+    public LongLongHashMap() {
+        this(16);
+    }
+
+    public LongLongHashMap(int expectedSize) {
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    /**
+     * Adds delta to the value stored for key, treating a missing key as 0.
+     * Throws ArithmeticException if the sum overflows.
+     */
+    public void addTo(long key, long delta) {
+        if (key == EMPTY) {
+            zeroValue = Math.addExact(zeroValue, delta);
+            if (!hasZeroKey) {
+                hasZeroKey = true;
+                size++;
+            }
+            return;
+        }
+
+        int slot = slot(key);
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                values[slot] = Math.addExact(values[slot], delta);
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        keys[slot] = key;
+        values[slot] = delta;
+        if (++size > resizeThreshold) {
+            resize();
+        }
+    }
+
+    public void put(long key, long value) {
+        if (key == EMPTY) {
+            if (!hasZeroKey) {
+                hasZeroKey = true;
+                size++;
+            }
+            zeroValue = value;
+            return;
+        }
+
+        int slot = slot(key);
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > resizeThreshold) {
+            resize();
+        }
+    }
+
+    /**
+     * Returns the value for key, or 0 if it is not present.
+     */
+    public long get(long key) {
+        if (key == EMPTY) {
+            return hasZeroKey ? zeroValue : 0L;
+        }
+
+        int slot = slot(key);
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return 0L;
+    }
+
+    public boolean containsKey(long key) {
+        if (key == EMPTY) {
+            return hasZeroKey;
+        }
+
+        int slot = slot(key);
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Number of slots allocated, which {@link #clear()} keeps.
+     */
+    public int capacity() {
+        return keys.length;
+    }
+
+    /**
+     * Removes every entry but keeps the allocated table for reuse.
+     */
+    public void clear() {
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+        hasZeroKey = false;
+        zeroValue = 0L;
+    }
+
+    public void forEach(EntryConsumer consumer) {
+        if (hasZeroKey) {
+            consumer.accept(EMPTY, zeroValue);
+        }
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != EMPTY) {
+                consumer.accept(keys[slot], values[slot]);
+            }
+        }
+    }
+
+    /**
+     * Adds every entry of other into this map.
+     */
+    public void addAll(LongLongHashMap other) {
+        other.forEach(this::addTo);
+    }
+
+    private int slot(long key) {
+        // Spread the bits: user ids are sequential, which would cluster under a plain mask
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        allocate(oldKeys.length * 2);
+
+        for (int slot = 0; slot < oldKeys.length; slot++) {
+            long key = oldKeys[slot];
+            if (key != EMPTY) {
+                int newSlot = slot(key);
+                while (keys[newSlot] != EMPTY) {
+                    newSlot = (newSlot + 1) & mask;
+                }
+                keys[newSlot] = key;
+                values[newSlot] = oldValues[slot];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new long[capacity];
+        mask = capacity - 1;
+        resizeThreshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(2, (int) Math.ceil(expectedSize / LOAD_FACTOR)) - 1) << 1;
+        return Math.max(capacity, 4);
+    }
+
+    @FunctionalInterface
+    public interface EntryConsumer {
+        void accept(long key, long value);
+    }
+}
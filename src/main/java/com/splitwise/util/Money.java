@@ -0,0 +1,99 @@
+package com.splitwise.util;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Fixed-point money arithmetic on long minor units (cents).
+ *
+ * Balance computation and split generation work in cents so that adding, subtracting and
+ * comparing amounts does not allocate. Amounts are converted from BigDecimal when read from
+ * requests or entities and back to BigDecimal only when written to entities or responses.
+ * Every operation is exact: rounding follows RoundingMode.HALF_UP at two decimal places,
+ * exactly as the equivalent BigDecimal expression would, and overflow throws
+ * ArithmeticException instead of wrapping.
+ */
+public final class Money {
+
+    public static final int SCALE = 2;
+
+    /** Percentages are held in basis points: 100% = 10_000. */
+    public static final long FULL_PERCENTAGE = 10_000;
+
+    private Money() {}
+
+    /**
+     * Converts an amount with at most two decimal places to cents.
+     * Throws ArithmeticException if the amount has a finer fraction or does not fit in a long.
+     */
+    public static long toCents(BigDecimal amount) {
+        return amount.movePointRight(SCALE).longValueExact();
+    }
+
+    public static BigDecimal toBigDecimal(long cents) {
+        return BigDecimal.valueOf(cents, SCALE);
+    }
+
+    /**
+     * Converts a percentage with at most two decimal places to basis points.
+     */
+    public static long toBasisPoints(BigDecimal percentage) {
+        return percentage.movePointRight(SCALE).longValueExact();
+    }
+
+    public static BigDecimal basisPointsToPercentage(long basisPoints) {
+        return BigDecimal.valueOf(basisPoints, SCALE);
+    }
+
+    public static long add(long a, long b) {
+        return Math.addExact(a, b);
+    }
+
+    public static long subtract(long a, long b) {
+        return Math.subtractExact(a, b);
+    }
+
+    public static long negate(long cents) {
+        return Math.negateExact(cents);
+    }
+
+    /**
+     * One of n equal shares of an amount, rounded half up to the cent.
+     * Same result as amount.divide(n, 2, HALF_UP).
+     */
+    public static long share(long cents, int n) {
+        return divideHalfUp(cents, n);
+    }
+
+    /**
+     * The given percentage of an amount, rounded half up to the cent.
+     * Same result as amount.multiply(percentage).divide(100, 2, HALF_UP).
+     */
+    public static long percentOf(long cents, long basisPoints) {
+        long product;
+        try {
+            product = Math.multiplyExact(cents, basisPoints);
+        } catch (ArithmeticException overflow) {
+            // Only reachable for amounts in the hundreds of trillions; fall back to exact arithmetic
+            return BigDecimal.valueOf(cents)
+                    .multiply(BigDecimal.valueOf(basisPoints))
+                    .divide(BigDecimal.valueOf(FULL_PERCENTAGE), 0, RoundingMode.HALF_UP)
+                    .longValueExact();
+        }
+        return divideHalfUp(product, FULL_PERCENTAGE);
+    }
+
+    /**
+     * Integer division rounding half away from zero, like RoundingMode.HALF_UP.
+     */
+    static long divideHalfUp(long dividend, long divisor) {
+        long quotient = dividend / divisor;
+        long remainder = dividend % divisor;
+        // Compare 2 * |remainder| with |divisor| without overflowing
+        if (Math.abs(remainder) >= Math.abs(divisor) - Math.abs(remainder)) {
+            quotient += (dividend < 0) == (divisor < 0) ? 1 : -1;
+        }
+        return quotient;
+    }
+
+}
@@ -0,0 +1,110 @@
+-- Schema for the expense-sharing service.
+--
+-- Every repository query is served by one of the indexes below; QueryPlanVerifier runs
+-- EXPLAIN on each of them at startup and fails if any falls back to a table scan.
+-- Listing indexes are declared newest first, matching the ORDER BY of the seek queries,
+-- so a page is read in index order without a sort.
+
+-- Pooled sequences (50 ids per round trip) let Hibernate batch inserts
+CREATE SEQUENCE expense_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE split_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE user_expense_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE users (
+    id           BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    name         VARCHAR(255) NOT NULL,
+    email        VARCHAR(255) NOT NULL,
+    phone_number VARCHAR(255) NOT NULL,
+    created_at   TIMESTAMP(6) NOT NULL,
+    PRIMARY KEY (id),
+    -- UserRepository.findByEmail / existsByEmail
+    CONSTRAINT uk_users_email UNIQUE (email),
+    -- UserRepository.findByPhoneNumber / existsByPhoneNumber
+    CONSTRAINT uk_users_phone_number UNIQUE (phone_number)
+);
+
+CREATE TABLE groups (
+    id          BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    name        VARCHAR(255) NOT NULL,
+    description VARCHAR(255),
+    created_at  TIMESTAMP(6) NOT NULL,
+    PRIMARY KEY (id)
+);
+
+-- The primary key serves a group's member list; the second index a user's groups
+CREATE TABLE group_members (
+    group_id BIGINT NOT NULL,
+    user_id  BIGINT NOT NULL,
+    PRIMARY KEY (group_id, user_id),
+    CONSTRAINT fk_group_members_group FOREIGN KEY (group_id) REFERENCES groups (id),
+    CONSTRAINT fk_group_members_user FOREIGN KEY (user_id) REFERENCES users (id)
+);
+CREATE INDEX idx_group_members_user ON group_members (user_id, group_id);
+
+CREATE TABLE expenses (
+    id              BIGINT NOT NULL,
+    description     VARCHAR(255) NOT NULL,
+    amount          NUMERIC(19, 2) NOT NULL,
+    paid_by_user_id BIGINT NOT NULL,
+    group_id        BIGINT,
+    split_type      VARCHAR(255) NOT NULL CHECK (split_type IN ('EQUAL', 'EXACT', 'PERCENTAGE')),
+    created_at      TIMESTAMP(6) NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT fk_expenses_paid_by FOREIGN KEY (paid_by_user_id) REFERENCES users (id),
+    CONSTRAINT fk_expenses_group FOREIGN KEY (group_id) REFERENCES groups (id)
+);
+-- ExpenseRepository.findPageIds / findPageIdsAfter
+CREATE INDEX idx_expenses_created_at_id ON expenses (created_at DESC, id DESC);
+-- ExpenseRepository.findPageIdsByGroupId / findPageIdsByGroupIdAfter
+CREATE INDEX idx_expenses_group_created_at_id ON expenses (group_id, created_at DESC, id DESC);
+-- Foreign key checks on users
+CREATE INDEX idx_expenses_paid_by ON expenses (paid_by_user_id);
+
+CREATE TABLE splits (
+    id         BIGINT NOT NULL,
+    expense_id BIGINT NOT NULL,
+    user_id    BIGINT NOT NULL,
+    amount     NUMERIC(19, 2) NOT NULL,
+    percentage NUMERIC(5, 2),
+    PRIMARY KEY (id),
+    CONSTRAINT fk_splits_expense FOREIGN KEY (expense_id) REFERENCES expenses (id),
+    CONSTRAINT fk_splits_user FOREIGN KEY (user_id) REFERENCES users (id)
+);
+-- Splits of a page of expenses, and the split half of ExpenseRepository.sumBalancesByIdGreaterThan,
+-- which reads only these columns
+CREATE INDEX idx_splits_expense_user_amount ON splits (expense_id, user_id, amount);
+-- Foreign key checks on users
+CREATE INDEX idx_splits_user_expense ON splits (user_id, expense_id);
+
+-- One row per way a user is involved in an expense, see ExpenseParticipant
+CREATE TABLE user_expense (
+    id         BIGINT NOT NULL,
+    user_id    BIGINT NOT NULL,
+    expense_id BIGINT NOT NULL,
+    role       VARCHAR(16) NOT NULL CHECK (role IN ('PAYER', 'PARTICIPANT')),
+    created_at TIMESTAMP(6) NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_user_expense_user_expense_role UNIQUE (user_id, expense_id, role),
+    CONSTRAINT fk_user_expense_user FOREIGN KEY (user_id) REFERENCES users (id),
+    CONSTRAINT fk_user_expense_expense FOREIGN KEY (expense_id) REFERENCES expenses (id)
+);
+-- ExpenseParticipantRepository.findPageExpenseIds / findPageExpenseIdsAfter
+CREATE INDEX idx_user_expense_user_created_at_expense ON user_expense (user_id, created_at DESC, expense_id DESC);
+-- Foreign key checks on expenses
+CREATE INDEX idx_user_expense_expense ON user_expense (expense_id);
+
+CREATE TABLE balance_ledger (
+    id         BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    user_id    BIGINT NOT NULL,
+    group_id   BIGINT,
+    balance    NUMERIC(19, 2) NOT NULL,
+    updated_at TIMESTAMP(6) NOT NULL,
+    PRIMARY KEY (id),
+    -- LedgerEntryRepository lookups and updates by user and group. NULL group_ids never
+    -- collide here, so V3 replaces this with a key that also covers the overall row
+    CONSTRAINT uk_balance_ledger_user_group UNIQUE (user_id, group_id),
+    CONSTRAINT fk_balance_ledger_user FOREIGN KEY (user_id) REFERENCES users (id),
+    CONSTRAINT fk_balance_ledger_group FOREIGN KEY (group_id) REFERENCES groups (id)
+);
+-- Foreign key checks on groups, and the ledger's group rows
+CREATE INDEX idx_balance_ledger_group ON balance_ledger (group_id);
@@ -0,0 +1,4 @@
+-- Expenses applied from the write-ahead journal keep their record's sequence, so the
+-- applier can resume after the highest one; the unique index also serves that MAX.
+ALTER TABLE expenses ADD COLUMN journal_sequence BIGINT;
+ALTER TABLE expenses ADD CONSTRAINT uk_expenses_journal_sequence UNIQUE (journal_sequence);
@@ -0,0 +1,17 @@
+-- A user's overall ledger row has no group, and NULLs never collide in a unique constraint,
+-- so two concurrent first expenses of a user could each insert an overall row.
+-- group_key maps that NULL to 0 so the unique key covers overall rows too.
+
+-- Fold duplicate overall rows into the oldest one; each holds part of the user's balance
+UPDATE balance_ledger l
+SET balance = (SELECT SUM(d.balance) FROM balance_ledger d WHERE d.user_id = l.user_id AND d.group_id IS NULL)
+WHERE l.group_id IS NULL
+  AND l.id = (SELECT MIN(d.id) FROM balance_ledger d WHERE d.user_id = l.user_id AND d.group_id IS NULL);
+DELETE FROM balance_ledger l
+WHERE l.group_id IS NULL
+  AND l.id > (SELECT MIN(d.id) FROM balance_ledger d WHERE d.user_id = l.user_id AND d.group_id IS NULL);
+
+ALTER TABLE balance_ledger ADD COLUMN group_key BIGINT GENERATED ALWAYS AS (COALESCE(group_id, 0));
+ALTER TABLE balance_ledger DROP CONSTRAINT uk_balance_ledger_user_group;
+-- LedgerEntryRepository lookups and updates by user, with or without a group
+ALTER TABLE balance_ledger ADD CONSTRAINT uk_balance_ledger_user_group_key UNIQUE (user_id, group_key);
@@ -0,0 +1,8 @@
+-- Journal records that could not be applied. They never reach the expenses table, so the
+-- applier resumes after the highest sequence of either table; the primary key serves that MAX.
+CREATE TABLE journal_dead_letters (
+    sequence  BIGINT NOT NULL,
+    error     VARCHAR(1000),
+    failed_at TIMESTAMP(6) NOT NULL,
+    PRIMARY KEY (sequence)
+);